@@ -0,0 +1,89 @@
+package benchmarks;
+
+import decisionTree.CompiledTree;
+import decisionTree.Tree;
+import decisionTree.TreeConstructor;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification of single rows, cycling through the data set, and of all rows in one batch,
+ * by the tree itself and the compiled tree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassificationBenchmark extends SyntheticDataState {
+
+    private Tree tree;
+    private CompiledTree compiledTree;
+    private List<CSVRecord> records;
+    private double[][] rowFeatures;
+    private double[][] columns;
+    private int[] predictions;
+    private int row;
+
+    @Setup(Level.Trial)
+    public void train() throws IOException {
+        this.tree = new TreeConstructor(getData(), getData().getAllRows()).getDecisionTree();
+        this.compiledTree = CompiledTree.compile(this.tree, getData());
+        final StringBuilder csv = new StringBuilder();
+        SyntheticData.writeCsv(getData(), csv);
+        this.records = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(new StringReader(csv.toString())).getRecords();
+        this.rowFeatures = new double[this.rows][];
+        for (int row = 0; row < this.rows; row++) {
+            this.rowFeatures[row] = this.compiledTree.getFeatures(getData(), row, new double[this.compiledTree.getNumberOfFeatures()]);
+        }
+        this.columns = this.compiledTree.getFeatureColumns(getData(), getData().getAllRows());
+        this.predictions = new int[this.rows];
+    }
+
+    private int nextRow() {
+        this.row = this.row + 1 == this.rows ? 0 : this.row + 1;
+        return this.row;
+    }
+
+    @Benchmark
+    public String treeSearchRecord() {
+        return this.tree.search(this.tree, this.records.get(nextRow()));
+    }
+
+    @Benchmark
+    public String treeSearchRow() {
+        return this.tree.search(this.tree, getData(), nextRow());
+    }
+
+    @Benchmark
+    public int compiledRow() {
+        return this.compiledTree.classify(this.rowFeatures[nextRow()]);
+    }
+
+    /**
+     * All rows per invocation, divide by the rows for the time per row
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] compiledBatch() {
+        this.compiledTree.classify(this.columns, 0, this.rows, this.predictions);
+        return this.predictions;
+    }
+}
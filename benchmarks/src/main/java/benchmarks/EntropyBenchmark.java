@@ -0,0 +1,50 @@
+package benchmarks;
+
+import decisionTree.TreeConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entropy of a label distribution, evaluated at every candidate threshold during induction
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntropyBenchmark {
+
+    @Param({"2", "10", "100"})
+    public int classes;
+
+    private int[] occurrences;
+    private int numberOfSamples;
+
+    @Setup
+    public void countLabels() {
+        final Random random = new Random(42);
+        this.occurrences = new int[this.classes];
+        for (int label = 0; label < this.classes; label++) {
+            this.occurrences[label] = random.nextInt(1000);
+            this.numberOfSamples += this.occurrences[label];
+        }
+    }
+
+    @Benchmark
+    public double entropy() {
+        return TreeConstructor.calculateEntropy(this.occurrences, this.numberOfSamples);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import decisionTree.InductionOptions;
+import decisionTree.Tree;
+import decisionTree.TreeConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Growing a full tree on all rows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InductionBenchmark extends SyntheticDataState {
+
+    @Param({"false", "true"})
+    public boolean presorted;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    // 0 for exact thresholds
+    @Param({"0", "256"})
+    public int histogramBins;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        getData();
+    }
+
+    @Benchmark
+    public Tree induction() {
+        final InductionOptions options = new InductionOptions();
+        options.setPresorted(this.presorted);
+        options.setParallelSubtrees(this.parallel);
+        options.setParallelAttributes(this.parallel);
+        options.setHistogramBins(this.histogramBins);
+        return new TreeConstructor(getData(), getData().getAllRows(), options).getDecisionTree();
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import dataReader.BinaryDataReader;
+import dataReader.BinaryDataWriter;
+import dataReader.CSVReader;
+import dataReader.MappedCSVReader;
+import driver.DataMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a data set by every reader, from the synthetic data written to a csv file or from the bundled owls15.csv
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark extends SyntheticDataState {
+
+    @Param({"synthetic", "owls15"})
+    public String dataSet;
+
+    private Path csvFile;
+    private Path binaryFile;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        final DataMatrix written;
+        if ("owls15".equals(this.dataSet)) {
+            this.csvFile = SyntheticData.copyResource("owls15.csv");
+            written = new CSVReader(this.csvFile.toString()).getDataMatrix();
+        } else {
+            this.csvFile = Files.createTempFile("benchmark", ".csv");
+            SyntheticData.writeCsv(getData(), this.csvFile);
+            written = getData();
+        }
+        this.binaryFile = Files.createTempFile("benchmark", BinaryDataReader.EXTENSION);
+        BinaryDataWriter.write(written, this.binaryFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(this.csvFile);
+        Files.deleteIfExists(this.binaryFile);
+    }
+
+    @Benchmark
+    public DataMatrix csvReader() throws IOException {
+        return new CSVReader(this.csvFile.toString()).getDataMatrix();
+    }
+
+    @Benchmark
+    public DataMatrix mappedCsvReader() throws IOException {
+        return new MappedCSVReader(this.csvFile.toString()).getDataMatrix();
+    }
+
+    @Benchmark
+    public DataMatrix mappedCsvReaderParallel() throws IOException {
+        return new MappedCSVReader(this.csvFile.toString(), ForkJoinPool.commonPool()).getDataMatrix();
+    }
+
+    @Benchmark
+    public DataMatrix binaryDataReader() throws IOException {
+        return new BinaryDataReader(this.binaryFile.toString()).getDataMatrix();
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import classifier.Results;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collecting the predictions of a test set and reporting the metrics derived from them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultsBenchmark {
+
+    @Param("100000")
+    public int predictions;
+
+    @Param({"4", "300"})
+    public int classes;
+
+    private List<String> labels;
+    private int[] actual;
+    private int[] predicted;
+    private Results results;
+
+    @Setup(Level.Trial)
+    public void predict() {
+        final Random random = new Random(42);
+        this.labels = Lists.newArrayList();
+        for (int label = 0; label < this.classes; label++) {
+            this.labels.add("class" + label);
+        }
+        this.actual = new int[this.predictions];
+        this.predicted = new int[this.predictions];
+        for (int i = 0; i < this.predictions; i++) {
+            this.actual[i] = random.nextInt(this.classes);
+            this.predicted[i] = random.nextDouble() < 0.8 ? this.actual[i] : random.nextInt(this.classes);
+        }
+        this.results = collect();
+    }
+
+    @Benchmark
+    public Results collect() {
+        final Results results = new Results(this.labels);
+        for (int i = 0; i < this.predictions; i++) {
+            results.add(this.actual[i], this.predicted[i]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public String report() {
+        return this.results.getAccuracy() + this.results.getConfusionMatrix() + this.results.getClassMetrics();
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import decisionTree.TreeConstructor;
+import driver.Gain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Best split of the first continuous and the first discrete attribute over all rows, the work done per attribute at the root.
+ * Needs at least one attribute of each kind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplitBenchmark extends SyntheticDataState {
+
+    private TreeConstructor treeConstructor;
+    private int[] allRows;
+    private int[] sortedRows;
+    private int[] occurrences;
+    private double targetEntropy;
+
+    @Setup(Level.Trial)
+    public void prepareRoot() {
+        // a single row grows a leaf at once, leaving a constructor whose gain methods can be called on any rows
+        this.treeConstructor = new TreeConstructor(getData(), new int[]{0});
+        this.allRows = getData().getAllRows();
+        this.occurrences = this.treeConstructor.countDecisionClassLabels(this.allRows);
+        this.targetEntropy = TreeConstructor.calculateEntropy(this.occurrences, this.allRows.length);
+        final double[] values = getData().getContinuousColumn(0);
+        this.sortedRows = Arrays.stream(this.allRows).boxed()
+                .sorted((a, b) -> Double.compare(values[a], values[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    @Benchmark
+    public Gain continuousSplit() {
+        return this.treeConstructor.getContinuousAttributeGain(this.sortedRows, 0, this.occurrences, this.targetEntropy);
+    }
+
+    @Benchmark
+    public Gain discreteSplit() {
+        return this.treeConstructor.getDiscreteAttributeGain(this.allRows, this.continuousColumns, this.targetEntropy);
+    }
+}
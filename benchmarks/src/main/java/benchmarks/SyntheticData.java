@@ -0,0 +1,134 @@
+package benchmarks;
+
+import driver.Attribute;
+import driver.DataMatrix;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * Generates classified data sets of a given shape. Continuous attributes come first, then the discrete ones
+ * and the label in the last column. The label follows a rule over the first attributes with 10% noise,
+ * so trees grow to a realistic depth rather than memorising random labels.
+ */
+public final class SyntheticData {
+
+    private static final double NOISE = 0.1;
+
+    private SyntheticData() {
+    }
+
+    /**
+     * @param rows
+     * @param continuousColumns
+     * @param discreteColumns
+     * @param cardinality       - number of values of every discrete attribute
+     * @param classes           - number of labels
+     * @param seed
+     * @return
+     */
+    public static DataMatrix generate(final int rows, final int continuousColumns, final int discreteColumns,
+                                      final int cardinality, final int classes, final long seed) {
+        final Random random = new Random(seed);
+        final int numberOfColumns = continuousColumns + discreteColumns + 1;
+        final Attribute[] attributes = new Attribute[numberOfColumns];
+        final double[][] continuous = new double[numberOfColumns][];
+        final int[][] discrete = new int[numberOfColumns][];
+        final String[][] dictionaries = new String[numberOfColumns][];
+        for (int column = 0; column < continuousColumns; column++) {
+            attributes[column] = new Attribute("c" + column, true);
+            continuous[column] = new double[rows];
+            for (int row = 0; row < rows; row++) {
+                // three decimals, so values repeat as in measured data
+                continuous[column][row] = random.nextInt(1000) / 1000.0;
+            }
+        }
+        for (int column = continuousColumns; column < numberOfColumns; column++) {
+            final boolean target = column == numberOfColumns - 1;
+            attributes[column] = new Attribute(target ? "label" : "d" + (column - continuousColumns), false);
+            discrete[column] = new int[rows];
+            dictionaries[column] = new String[target ? classes : cardinality];
+            for (int code = 0; code < dictionaries[column].length; code++) {
+                dictionaries[column][code] = (target ? "class" : "v") + code;
+            }
+            if (!target) {
+                for (int row = 0; row < rows; row++) {
+                    discrete[column][row] = random.nextInt(cardinality);
+                }
+            }
+        }
+        // the label is the band of a score summing up to three continuous and two discrete attributes
+        final int scored = Math.min(3, continuousColumns) + Math.min(2, discreteColumns);
+        final int[] labels = discrete[numberOfColumns - 1];
+        for (int row = 0; row < rows; row++) {
+            double score = 0;
+            for (int column = 0; column < Math.min(3, continuousColumns); column++) {
+                score += continuous[column][row];
+            }
+            for (int column = continuousColumns; column < continuousColumns + Math.min(2, discreteColumns); column++) {
+                score += discrete[column][row] / (double) cardinality;
+            }
+            labels[row] = scored == 0 || random.nextDouble() < NOISE ?
+                    random.nextInt(classes) :
+                    Math.min(classes - 1, (int) (score / scored * classes));
+        }
+        return DataMatrix.of(attributes, numberOfColumns - 1, continuous, discrete, dictionaries);
+    }
+
+    /**
+     * Writes a data matrix as a csv file with a header
+     *
+     * @param data
+     * @param path
+     * @throws IOException
+     */
+    public static void writeCsv(final DataMatrix data, final Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writeCsv(data, writer);
+        }
+    }
+
+    /**
+     * @param data
+     * @param out
+     * @throws IOException
+     */
+    public static void writeCsv(final DataMatrix data, final Appendable out) throws IOException {
+        for (int column = 0; column < data.getNumberOfColumns(); column++) {
+            out.append(column == 0 ? "" : ",").append(data.getAttribute(column).getName());
+        }
+        out.append('\n');
+        for (int row = 0; row < data.getNumberOfRows(); row++) {
+            for (int column = 0; column < data.getNumberOfColumns(); column++) {
+                out.append(column == 0 ? "" : ",").append(data.isContinuous(column) ?
+                        DataMatrix.formatNumber(data.getContinuousColumn(column)[row]) :
+                        data.getDictionary(column)[data.getDiscreteColumn(column)[row]]);
+            }
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Copies the data set bundled with the benchmarks to a temporary file
+     *
+     * @param name - name of the resource, e.g. owls15.csv
+     * @return
+     * @throws IOException
+     */
+    public static Path copyResource(final String name) throws IOException {
+        final Path path = Files.createTempFile("benchmark", "_" + name);
+        try (InputStream in = SyntheticData.class.getResourceAsStream("/" + name)) {
+            if (in == null) {
+                throw new IOException("Resource " + name + " is not bundled");
+            }
+            Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import driver.DataMatrix;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Synthetic data set shared by the benchmarks, its shape is set by parameters, e.g. -p rows=1000000 -p classes=50
+ */
+@State(Scope.Benchmark)
+public class SyntheticDataState {
+
+    @Param("100000")
+    public int rows;
+
+    @Param("8")
+    public int continuousColumns;
+
+    @Param("4")
+    public int discreteColumns;
+
+    @Param("16")
+    public int cardinality;
+
+    @Param("4")
+    public int classes;
+
+    private DataMatrix data;
+
+    /**
+     * @return - the data set, generated on first use since JMH runs the setup of subclasses in no particular order
+     */
+    protected DataMatrix getData() {
+        if (this.data == null) {
+            this.data = SyntheticData.generate(this.rows, this.continuousColumns, this.discreteColumns, this.cardinality, this.classes, 42);
+        }
+        return this.data;
+    }
+}
@@ -1,16 +1,15 @@
 package classifier;
 
+import com.google.common.collect.Lists;
+import decisionTree.CompiledTree;
+import decisionTree.InductionOptions;
 import decisionTree.Tree;
 import decisionTree.TreeConstructor;
-import driver.Attribute;
+import driver.DataMatrix;
 import driver.PreprocessedData;
 import org.apache.commons.csv.CSVRecord;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -19,7 +18,20 @@ import java.util.List;
 public class C45 implements Classifier {
 
     public Tree decisionTree;
+    private CompiledTree compiledTree;
     private Results results;
+    private final InductionOptions options;
+
+    public C45() {
+        this(new InductionOptions());
+    }
+
+    /**
+     * @param options - settings used to grow the decision tree
+     */
+    public C45(final InductionOptions options) {
+        this.options = options;
+    }
 
     /**
      * This method trains a decision tree using the training set specified in the PreprocessedData argument.
@@ -28,75 +40,84 @@ public class C45 implements Classifier {
      */
     @Override
     public void train(final PreprocessedData ppd) {
-        final HashMap attributes = ppd.getAttributes();
-        // choose target - assuming that target is a last column
-        final Attribute targetAttribute = (Attribute) attributes.get(ppd.getTargetName());
-        final List<CSVRecord> dataSet = ppd.getTrainingDataSet();
-        TreeConstructor treeConstructor = new TreeConstructor(dataSet, attributes, targetAttribute);
+        // target is the last column of the data matrix
+        TreeConstructor treeConstructor = new TreeConstructor(ppd.getDataMatrix(), ppd.getTrainingRows(), this.options);
         this.decisionTree = treeConstructor.getDecisionTree();
+        setCompiledTree(CompiledTree.compile(this.decisionTree, ppd.getDataMatrix()));
+    }
 
+    /**
+     * Saves the trained model in the binary model format
+     *
+     * @param filePath - file to create or overwrite, by convention with the CompiledTree.EXTENSION
+     * @throws IOException
+     */
+    public void save(final String filePath) throws IOException {
+        this.compiledTree.save(filePath);
+    }
+
+    /**
+     * Loads a model saved by save. The loaded classifier has no Tree, it classifies through the compiled tree.
+     *
+     * @param filePath
+     * @return
+     * @throws IOException
+     */
+    public static C45 load(final String filePath) throws IOException {
+        final C45 c45 = new C45();
+        c45.setCompiledTree(CompiledTree.load(filePath));
+        return c45;
     }
 
     /**
      * This method tests the classifier. It uses the testing data set specified in PreprocessedData.
-     * It creates a list of results and saves them to a temporary file. The results are in the form
-     * 'predicted', 'actual', error with the error column containing a + if the predicted label is not equal to the actual label.
-     * The file is then used to create a Results object.
+     * The predictions are classified in one batch and added to a Results object as label codes,
+     * nothing is written to disk.
      *
      * @author jamesfallon
      * @param ppd - The dataset to test
      */
     @Override
     public void test(final PreprocessedData ppd) {
+        this.results = evaluate(this, this.compiledTree, ppd);
+    }
 
-        //Get the testing subset of examples
-        final List<CSVRecord> dataSet = ppd.getTestingDataSet();
-
-        try {
-
-            //Create a tempfile to store records, if it exists already delete it
-            String tempFilePath = System.currentTimeMillis() + "_Results.csv";
-
-            if (new File(tempFilePath).isFile()) {
-                new File(tempFilePath).delete();
-            }
-            File file = File.createTempFile(System.currentTimeMillis() + "_Results", ".csv");
-
-
-            //Print the header
-            PrintWriter printWriter = new PrintWriter(new FileOutputStream(file, false));
-            printWriter.println("actual,predicted,error");
-
-            //For each record, store the actual target value.
-            for (CSVRecord instance : dataSet) {
-
-                //For each record, store the actual target value.
-                String actual = instance.get(ppd.getTargetName());
-
-                //Classify the instance using the classifier and store the predicted target value
-                String predicted = classify(instance);
-
-                //If the two values don't match, mark the error column
-                String error = actual.equals(predicted) ? "" : "+";
-
-                printWriter.println(actual + "," + predicted + "," + error);
-            }
-
-            printWriter.close();
+    /**
+     * Classifies the testing rows in one batch and adds the predictions to a Results object as label codes.
+     * Results are coded by the labels of the data, model labels the data does not have are added after them.
+     *
+     * @param classifier - trained classifier predicting the label codes of the model
+     * @param model      - gives the features and labels of the classifier
+     * @param ppd        - the dataset to test
+     * @return
+     */
+    static Results evaluate(final Classifier classifier, final CompiledTree model, final PreprocessedData ppd) {
 
-            try {
-                //Create a new results instance using this tempfile
-                results = new Results(file);
-            } catch (Exception e) {
-                e.printStackTrace();
+        //Get the testing subset of examples
+        final DataMatrix data = ppd.getDataMatrix();
+        final int[] rows = ppd.getTestingRows();
+
+        final List<String> labels = Lists.newArrayList(data.getLabelDictionary());
+        final int[] labelCodes = new int[model.getNumberOfLabels()];
+        for (int code = 0; code < labelCodes.length; code++) {
+            final String label = model.getLabel(code);
+            labelCodes[code] = labels.indexOf(label);
+            if (labelCodes[code] < 0) {
+                labelCodes[code] = labels.size();
+                labels.add(label);
             }
-
-
-        } catch (IOException e) {
-            e.printStackTrace();
         }
 
+        //Classify all records in one batch over their feature columns
+        final int[] predictions = new int[rows.length];
+        classifier.classify(model.getFeatureColumns(data, rows), 0, rows.length, predictions);
 
+        final Results results = new Results(labels);
+        for (int i = 0; i < rows.length; i++) {
+            final int predicted = predictions[i];
+            results.add(data.getLabels()[rows[i]], predicted < 0 ? Results.NO_PREDICTION : labelCodes[predicted]);
+        }
+        return results;
     }
 
     /**
@@ -107,7 +128,36 @@ public class C45 implements Classifier {
      */
     @Override
     public String classify(final CSVRecord instance) {
-        return decisionTree.search(decisionTree, instance);
+        if (decisionTree != null) {
+            return decisionTree.search(decisionTree, instance);
+        }
+        // loaded model, fill a feature vector from the record
+        final double[] features = this.compiledTree.getFeatures(instance, new double[this.compiledTree.getNumberOfFeatures()]);
+        return getLabel(this.compiledTree.classify(features));
+    }
+
+    @Override
+    public void classify(final double[][] columns, final int from, final int to, final int[] predictions) {
+        this.compiledTree.classify(columns, from, to, predictions);
+    }
+
+    @Override
+    public String getLabel(final int code) {
+        return this.compiledTree.getLabel(code);
+    }
+
+    /**
+     * @param compiledTree - trained or loaded model
+     */
+    protected void setCompiledTree(final CompiledTree compiledTree) {
+        this.compiledTree = compiledTree;
+    }
+
+    /**
+     * @return - the trained tree flattened for classification of feature vectors
+     */
+    public CompiledTree getCompiledTree() {
+        return this.compiledTree;
     }
 
     @Override
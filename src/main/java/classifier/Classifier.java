@@ -13,5 +13,22 @@ public interface Classifier {
 
     String classify(CSVRecord instance);
 
+    /**
+     * Classifies a block of rows given in columnar form, in the column order of the training data.
+     * Continuous columns hold values, discrete columns hold codes of the training dictionaries.
+     *
+     * @param columns     - values of each column, null for columns not used such as the target
+     * @param from        - first row to classify
+     * @param to          - row following the last row to classify
+     * @param predictions - receives the label code of each row at the row's index, -1 for no prediction
+     */
+    void classify(double[][] columns, int from, int to, int[] predictions);
+
+    /**
+     * @param code - label code returned by the batch classification
+     * @return
+     */
+    String getLabel(int code);
+
     Results getResults();
 }
@@ -0,0 +1,187 @@
+package classifier;
+
+import com.google.common.collect.Lists;
+import decisionTree.CompiledTree;
+import decisionTree.InductionOptions;
+import decisionTree.Tree;
+import decisionTree.TreeConstructor;
+import driver.DataMatrix;
+import driver.PreprocessedData;
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Ensemble of C4.5 trees voting on every example. Each tree grows on a bootstrap sample of the training rows,
+ * handed to the TreeConstructor as the number of copies of each row so no data is copied. When the induction
+ * options limit the features per node every split is chosen among a random subset of the attributes,
+ * otherwise the trees differ by their samples only (bagging).
+ * The trees are trained concurrently on the executor of the options and vote on blocks of rows in parallel.
+ */
+public class RandomForest implements Classifier {
+
+    // rows voted on by one task of the batch classification
+    private static final int BLOCK = 4096;
+
+    private final int numberOfTrees;
+    private final long seed;
+    private final InductionOptions options;
+    private CompiledTree[] trees;
+    private Results results;
+
+    /**
+     * @param numberOfTrees
+     * @param seed          - seed of the bootstrap samples and attribute subsets, equal seeds grow equal forests
+     * @param options       - settings used to grow every tree
+     */
+    public RandomForest(final int numberOfTrees, final long seed, final InductionOptions options) {
+        if (numberOfTrees < 1) {
+            throw new IllegalArgumentException("A forest needs at least one tree, got " + numberOfTrees);
+        }
+        this.numberOfTrees = numberOfTrees;
+        this.seed = seed;
+        this.options = options;
+    }
+
+    @Override
+    public void train(final PreprocessedData ppd) {
+        final DataMatrix data = ppd.getDataMatrix();
+        final int[] trainingRows = ppd.getTrainingRows();
+        final List<Callable<CompiledTree>> tasks = Lists.newArrayList();
+        for (int tree = 0; tree < this.numberOfTrees; tree++) {
+            final long treeSeed = this.seed + tree;
+            tasks.add(() -> grow(data, trainingRows, treeSeed));
+        }
+        // the trees may be grown within a task of the pool, e.g. a fold of a cross validation
+        final List<CompiledTree> trees = this.options.invokeAll(tasks);
+        this.trees = trees.toArray(new CompiledTree[trees.size()]);
+    }
+
+    /**
+     * Grows a tree on a bootstrap sample, as many rows drawn with replacement as there are training rows
+     *
+     * @param data
+     * @param trainingRows
+     * @param seed
+     * @return
+     */
+    private CompiledTree grow(final DataMatrix data, final int[] trainingRows, final long seed) {
+        final Random random = new Random(seed);
+        final int[] weights = new int[data.getNumberOfRows()];
+        int numberOfSampledRows = 0;
+        for (int i = 0; i < trainingRows.length; i++) {
+            if (weights[trainingRows[random.nextInt(trainingRows.length)]]++ == 0) {
+                numberOfSampledRows++;
+            }
+        }
+        final int[] rows = new int[numberOfSampledRows];
+        int next = 0;
+        for (final int row : trainingRows) {
+            if (weights[row] > 0) {
+                rows[next++] = row;
+            }
+        }
+        final Tree tree = new TreeConstructor(data, rows, weights, this.options, random.nextLong()).getDecisionTree();
+        return CompiledTree.compile(tree, data);
+    }
+
+    @Override
+    public void test(final PreprocessedData ppd) {
+        // the trees are compiled against the same data matrix, so they share features and label codes
+        this.results = C45.evaluate(this, this.trees[0], ppd);
+    }
+
+    @Override
+    public String classify(final CSVRecord instance) {
+        final double[] features = this.trees[0].getFeatures(instance, new double[this.trees[0].getNumberOfFeatures()]);
+        final int[] votes = new int[this.trees[0].getNumberOfLabels()];
+        for (final CompiledTree tree : this.trees) {
+            final int prediction = tree.classify(features);
+            if (prediction >= 0) {
+                votes[prediction]++;
+            }
+        }
+        return getLabel(getMostVoted(votes, 0, votes.length));
+    }
+
+    @Override
+    public void classify(final double[][] columns, final int from, final int to, final int[] predictions) {
+        final List<Callable<Void>> blocks = Lists.newArrayList();
+        for (int start = from; start < to; start += BLOCK) {
+            final int blockFrom = start;
+            final int blockTo = Math.min(to, start + BLOCK);
+            blocks.add(() -> {
+                vote(columns, blockFrom, blockTo, predictions);
+                return null;
+            });
+        }
+        if (blocks.size() == 1) {
+            vote(columns, from, to, predictions);
+            return;
+        }
+        this.options.invokeAll(blocks);
+    }
+
+    /**
+     * Lets every tree classify a block of rows and predicts the label with the most votes
+     *
+     * @param columns
+     * @param from
+     * @param to
+     * @param predictions - receives the winning label code of each row, -1 if no tree predicts one
+     */
+    private void vote(final double[][] columns, final int from, final int to, final int[] predictions) {
+        final int numberOfLabels = this.trees[0].getNumberOfLabels();
+        // predictions of one tree for the block, indexed from the first row of the block
+        final int[] treePredictions = new int[to - from];
+        // votes of each row for each label, row by row
+        final int[] votes = new int[(to - from) * numberOfLabels];
+        for (final CompiledTree tree : this.trees) {
+            tree.classify(columns, from, to, treePredictions, from);
+            for (int row = from; row < to; row++) {
+                if (treePredictions[row - from] >= 0) {
+                    votes[(row - from) * numberOfLabels + treePredictions[row - from]]++;
+                }
+            }
+        }
+        for (int row = from; row < to; row++) {
+            predictions[row] = getMostVoted(votes, (row - from) * numberOfLabels, numberOfLabels);
+        }
+    }
+
+    /**
+     * @param votes          - votes for each label of one or more examples
+     * @param offset         - position of the votes of the example
+     * @param numberOfLabels
+     * @return - label with the most votes, the lowest code on a tie, -1 if there are no votes
+     */
+    private static int getMostVoted(final int[] votes, final int offset, final int numberOfLabels) {
+        int mostVoted = Results.NO_PREDICTION;
+        for (int label = 0; label < numberOfLabels; label++) {
+            if (votes[offset + label] > 0 && (mostVoted < 0 || votes[offset + label] > votes[offset + mostVoted])) {
+                mostVoted = label;
+            }
+        }
+        return mostVoted;
+    }
+
+    @Override
+    public String getLabel(final int code) {
+        return this.trees[0].getLabel(code);
+    }
+
+    /**
+     * @return - the trained trees flattened for classification
+     */
+    public List<CompiledTree> getTrees() {
+        return Collections.unmodifiableList(Lists.newArrayList(this.trees));
+    }
+
+    @Override
+    public Results getResults() {
+        return this.results;
+    }
+}
@@ -1,64 +1,104 @@
 package classifier;
 
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
-import dataReader.CSVReader;
-import org.apache.commons.csv.CSVRecord;
-
-import java.io.*;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * Created by jamesfallon on 23/11/2016.
+ *
+ * Predictions are added one at a time as label codes, the confusion matrix is kept up to date as they arrive.
  */
 public class Results {
 
-    List<CSVRecord> records;
-    private final Set<String> labels = Sets.newHashSet();
-    private final File tempFile;
+    // code used for an example the classifier could not label
+    public static final int NO_PREDICTION = -1;
+    private static final String NO_LABEL = " ";
+
+    private final String[] labels;
+    // counts indexed by [actual][predicted], the last column counts examples without a prediction
+    private final int[][] confusionMatrix;
+    private int[] actual = new int[16];
+    private int[] predicted = new int[16];
+    private int size;
 
     /**
      * Constructor which initialises the instance variables.
      *
-     * @param tempFile - tempFile created by the classifier.
-     *                 Has a list of results with the columns 'predicted label, actual label, error'
-     * @throws Exception
+     * @param labels - label of each code used by add
      */
-    public Results(File tempFile) throws Exception {
-        this.tempFile = tempFile;
-        records = new CSVReader(tempFile.getAbsolutePath()).getDataSet();
+    public Results(final List<String> labels) {
+        this.labels = labels.toArray(new String[labels.size()]);
+        this.confusionMatrix = new int[this.labels.length][this.labels.length + 1];
+    }
 
-        for (CSVRecord record : records) {
-            labels.add(record.get("predicted"));
-            labels.add(record.get("actual"));
+    /**
+     * Records the prediction made for one example.
+     *
+     * @param actual    - code of the actual label
+     * @param predicted - code of the predicted label or NO_PREDICTION
+     */
+    public void add(final int actual, final int predicted) {
+        if (this.size == this.actual.length) {
+            this.actual = Arrays.copyOf(this.actual, this.size * 2);
+            this.predicted = Arrays.copyOf(this.predicted, this.size * 2);
         }
+        this.actual[this.size] = actual;
+        this.predicted[this.size] = predicted;
+        this.size++;
+        this.confusionMatrix[actual][predicted == NO_PREDICTION ? this.labels.length : predicted]++;
+    }
 
+    /**
+     * @return - number of examples added
+     */
+    public int size() {
+        return this.size;
     }
 
     /**
-     * This method writes the results to a csv file.
-     * This takes the data from the temp file and prints it to a user specified file.
+     * This method writes the results to a csv file, one line per example in the form 'actual, predicted, error'
+     * with the error column containing a + if the predicted label is not equal to the actual label.
      *
      * @param filePath - path of where to write the new file.
-     * @throws Exception
+     * @throws IOException
      */
-    public void printResultsToFile(String filePath) throws Exception {
-        FileInputStream fis = new FileInputStream(tempFile);
-        BufferedReader in = new BufferedReader(new InputStreamReader(fis));
-
-        FileWriter fstream = new FileWriter(filePath, true);
-        BufferedWriter out = new BufferedWriter(fstream);
-
-        String line = null;
-        while ((line = in.readLine()) != null) {
-            out.write(line);
+    public void printResultsToFile(final String filePath) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filePath, true))) {
+            out.write("actual,predicted,error");
             out.newLine();
+            for (int i = 0; i < this.size; i++) {
+                out.write(this.labels[this.actual[i]]);
+                out.write(',');
+                out.write(getLabel(this.predicted[i]));
+                out.write(this.actual[i] == this.predicted[i] ? "," : ",+");
+                out.newLine();
+            }
         }
+    }
 
-        in.close();
-        out.close();
+    /**
+     * Adds the predictions of another run over the same labels, e.g. another fold of a cross validation.
+     *
+     * @param other
+     */
+    public void merge(final Results other) {
+        if (!Arrays.equals(this.labels, other.labels)) {
+            throw new IllegalArgumentException("Results over different labels can not be merged");
+        }
+        for (int actual = 0; actual < this.labels.length; actual++) {
+            for (int predicted = 0; predicted <= this.labels.length; predicted++) {
+                this.confusionMatrix[actual][predicted] += other.confusionMatrix[actual][predicted];
+            }
+        }
+        this.actual = Arrays.copyOf(this.actual, this.size + other.size);
+        this.predicted = Arrays.copyOf(this.predicted, this.size + other.size);
+        System.arraycopy(other.actual, 0, this.actual, this.size, other.size);
+        System.arraycopy(other.predicted, 0, this.predicted, this.size, other.size);
+        this.size += other.size;
     }
 
     /**
@@ -67,66 +107,121 @@ public class Results {
      * @return
      */
     public double getAccuracy() {
-        double numberOfErrors = 0.0;
-        for (CSVRecord record : records) {
-            if (record.get("error").equals("+")) {
-                numberOfErrors++;
-            }
+        int correct = 0;
+        for (int label = 0; label < this.labels.length; label++) {
+            correct += this.confusionMatrix[label][label];
         }
-        System.out.println(records.size());
-        return 1.0 - (numberOfErrors / (double) records.size());
+        return correct / (double) this.size;
     }
 
-
     /**
-     * This method creates a consfusion matrix for the labels in this dataset.
-     *
-     * @return - A string which contains a formatted confusion matrix ready for printing
+     * @param label - code of the label
+     * @return - fraction of the examples predicted as the label that have it, 0 if there are none
      */
-    public String getConfusionMatrix() {
-        Map<String, Integer> labelCombinationAndCount = Maps.newHashMap();
-        String confusionMatrix = "";
+    public double getPrecision(final int label) {
+        int predicted = 0;
+        for (final int[] row : this.confusionMatrix) {
+            predicted += row[label];
+        }
+        return predicted == 0 ? 0.0 : this.confusionMatrix[label][label] / (double) predicted;
+    }
 
+    /**
+     * @param label - code of the label
+     * @return - fraction of the examples having the label that are predicted as it, 0 if there are none
+     */
+    public double getRecall(final int label) {
+        int actual = 0;
+        for (final int count : this.confusionMatrix[label]) {
+            actual += count;
+        }
+        return actual == 0 ? 0.0 : this.confusionMatrix[label][label] / (double) actual;
+    }
 
-        for (CSVRecord record : records) {
-            String combination = record.get("predicted") + "|" + record.get("actual");
+    /**
+     * @param label - code of the label
+     * @return - harmonic mean of precision and recall
+     */
+    public double getF1(final int label) {
+        final double precision = getPrecision(label);
+        final double recall = getRecall(label);
+        return precision + recall == 0.0 ? 0.0 : 2 * precision * recall / (precision + recall);
+    }
 
-            if (labelCombinationAndCount.containsKey(combination)) {
-                labelCombinationAndCount.put(combination, labelCombinationAndCount.get(combination) + 1);
-            } else {
-                labelCombinationAndCount.put(combination, 1);
+    /**
+     * @return - Cohen's kappa, the agreement of predictions and actual labels beyond the agreement expected by chance
+     */
+    public double getKappa() {
+        double expected = 0.0;
+        for (int label = 0; label < this.labels.length; label++) {
+            int actual = 0;
+            int predicted = 0;
+            for (int other = 0; other < this.labels.length; other++) {
+                actual += this.confusionMatrix[label][other];
+                predicted += this.confusionMatrix[other][label];
             }
+            // the examples without a prediction also have an actual label
+            actual += this.confusionMatrix[label][this.labels.length];
+            expected += actual / (double) this.size * (predicted / (double) this.size);
         }
+        return expected == 1.0 ? 1.0 : (getAccuracy() - expected) / (1.0 - expected);
+    }
 
+    /**
+     * @return - labels in code order
+     */
+    public List<String> getLabels() {
+        return Collections.unmodifiableList(Arrays.asList(this.labels));
+    }
 
-        //Print header
-
-        confusionMatrix = confusionMatrix.concat("Predicted:");
-
-        for (String predicted : labels) {
-            confusionMatrix = confusionMatrix.concat("\t" + predicted);
+    /**
+     * This method creates a confusion matrix for the labels in this dataset.
+     * Rows are the actual labels and columns the predicted ones.
+     *
+     * @return - A string which contains a formatted confusion matrix ready for printing
+     */
+    public String getConfusionMatrix() {
+        // examples without a prediction get a column only if there are any
+        boolean unlabelled = false;
+        for (final int[] row : this.confusionMatrix) {
+            unlabelled |= row[this.labels.length] > 0;
         }
+        final int columns = unlabelled ? this.labels.length + 1 : this.labels.length;
 
-        confusionMatrix = confusionMatrix.concat("\n");
-
-        for (String actual : labels) {
-            confusionMatrix = confusionMatrix.concat(actual + "\t");
-
-            for (String predicted : labels) {
+        final StringBuilder confusionMatrix = new StringBuilder("Predicted:");
+        for (int predicted = 0; predicted < columns; predicted++) {
+            confusionMatrix.append('\t').append(predicted < this.labels.length ? this.labels[predicted] : NO_LABEL);
+        }
+        confusionMatrix.append('\n');
 
-                if (labelCombinationAndCount.containsKey(actual + "|" + predicted)) {
-                    confusionMatrix = confusionMatrix.concat(labelCombinationAndCount.get(actual + "|" + predicted) + "\t");
-                } else {
-                    confusionMatrix = confusionMatrix.concat(0 + "\t");
-                }
+        for (int actual = 0; actual < this.labels.length; actual++) {
+            confusionMatrix.append(this.labels[actual]).append('\t');
+            for (int predicted = 0; predicted < columns; predicted++) {
+                confusionMatrix.append(this.confusionMatrix[actual][predicted]).append('\t');
             }
-
-            confusionMatrix = confusionMatrix.concat("\n");
-
+            confusionMatrix.append('\n');
         }
+        return confusionMatrix.toString();
+    }
 
-        return confusionMatrix;
+    /**
+     * @return - precision, recall and F1 of every label and the kappa statistic, formatted for printing
+     */
+    public String getClassMetrics() {
+        final StringBuilder metrics = new StringBuilder("Label\tPrecision\tRecall\tF1\n");
+        for (int label = 0; label < this.labels.length; label++) {
+            metrics.append(this.labels[label])
+                    .append('\t').append(String.format("%.4f", getPrecision(label)))
+                    .append('\t').append(String.format("%.4f", getRecall(label)))
+                    .append('\t').append(String.format("%.4f", getF1(label)))
+                    .append('\n');
+        }
+        metrics.append("Kappa: ").append(String.format("%.4f", getKappa())).append('\n');
+        return metrics.toString();
+    }
 
+    private String getLabel(final int code) {
+        return code == NO_PREDICTION ? NO_LABEL : this.labels[code];
     }
 
 }
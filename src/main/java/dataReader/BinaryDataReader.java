@@ -0,0 +1,129 @@
+package dataReader;
+
+import com.google.common.collect.Lists;
+import driver.Attribute;
+import driver.DataMatrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Reads a data set written by BinaryDataWriter. The file is memory mapped and the columns are bulk copied
+ * from the mapping, attribute types and dictionaries are taken from the file, so nothing is parsed or inferred.
+ */
+public class BinaryDataReader implements DataReader {
+
+    public static final String EXTENSION = ".j48d";
+
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    private final ArrayList<String> attributeNames = Lists.newArrayList();
+    private final DataMatrix dataMatrix;
+
+    public BinaryDataReader(final String filePath) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < 20 || header.getInt() != BinaryDataWriter.MAGIC) {
+                throw new IOException(filePath + " is not a binary data set");
+            }
+            final int version = header.getInt();
+            if (version != BinaryDataWriter.VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary data set " + filePath);
+            }
+            final int numberOfRows = header.getInt();
+            final int numberOfColumns = header.getInt();
+            final int targetColumn = header.getInt();
+
+            final Attribute[] attributes = new Attribute[numberOfColumns];
+            final boolean[] doubleColumn = new boolean[numberOfColumns];
+            final String[][] dictionaries = new String[numberOfColumns][];
+            for (int column = 0; column < numberOfColumns; column++) {
+                final String name = getString(header);
+                final byte flags = header.get();
+                this.attributeNames.add(name);
+                attributes[column] = new Attribute(name, (flags & BinaryDataWriter.CONTINUOUS_ATTRIBUTE) != 0);
+                doubleColumn[column] = (flags & BinaryDataWriter.DOUBLE_COLUMN) != 0;
+                if (!doubleColumn[column]) {
+                    dictionaries[column] = new String[header.getInt()];
+                    for (int code = 0; code < dictionaries[column].length; code++) {
+                        dictionaries[column][code] = getString(header);
+                    }
+                }
+            }
+
+            final double[][] continuousColumns = new double[numberOfColumns][];
+            final int[][] discreteColumns = new int[numberOfColumns][];
+            long position = header.position();
+            for (int column = 0; column < numberOfColumns; column++) {
+                position = (position + 7) & ~7L;
+                if (doubleColumn[column]) {
+                    continuousColumns[column] = new double[numberOfRows];
+                    position = readDoubles(channel, position, continuousColumns[column]);
+                } else {
+                    discreteColumns[column] = new int[numberOfRows];
+                    position = readInts(channel, position, discreteColumns[column]);
+                }
+            }
+            this.dataMatrix = DataMatrix.of(attributes, targetColumn, continuousColumns, discreteColumns, dictionaries);
+        }
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param channel
+     * @param position
+     * @param values   - filled from the file
+     * @return - position following the values
+     * @throws IOException
+     */
+    private static long readDoubles(final FileChannel channel, long position, final double[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            final int length = Math.min(values.length - offset, SEGMENT_SIZE / 8);
+            map(channel, position, length * 8L).asDoubleBuffer().get(values, offset, length);
+            position += length * 8L;
+            offset += length;
+        }
+        return position;
+    }
+
+    private static long readInts(final FileChannel channel, long position, final int[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            final int length = Math.min(values.length - offset, SEGMENT_SIZE / 4);
+            map(channel, position, length * 4L).asIntBuffer().get(values, offset, length);
+            position += length * 4L;
+            offset += length;
+        }
+        return position;
+    }
+
+    private static ByteBuffer map(final FileChannel channel, final long position, final long size) throws IOException {
+        if (position + size > channel.size()) {
+            throw new IOException("Binary data set is truncated");
+        }
+        final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return segment.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public ArrayList<String> getAttributeNames() {
+        return this.attributeNames;
+    }
+
+    @Override
+    public DataMatrix getDataMatrix() {
+        return this.dataMatrix;
+    }
+}
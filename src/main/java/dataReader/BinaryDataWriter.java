@@ -0,0 +1,143 @@
+package dataReader;
+
+import driver.DataMatrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a DataMatrix in the binary columnar format read by BinaryDataReader.
+ * <p>
+ * All values are little endian. The header holds the magic number, the format version, the number of rows,
+ * the number of columns and the target column, then for every column its name, a flags byte
+ * (attribute is continuous, column is stored as doubles) and for dictionary encoded columns the dictionary.
+ * Strings are written as their UTF-8 length followed by the bytes. The columns follow in column order,
+ * each starting at a multiple of 8 bytes: doubles for continuous columns, int codes for discrete ones.
+ */
+public final class BinaryDataWriter {
+
+    static final int MAGIC = 0x4A343844; // J48D
+    static final int VERSION = 1;
+    static final int CONTINUOUS_ATTRIBUTE = 1;
+    static final int DOUBLE_COLUMN = 2;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    private BinaryDataWriter(final FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param data
+     * @param filePath - file to create or overwrite, by convention with the BinaryDataReader.EXTENSION
+     * @throws IOException
+     */
+    public static void write(final DataMatrix data, final String filePath) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            new BinaryDataWriter(channel).write(data);
+        }
+    }
+
+    private void write(final DataMatrix data) throws IOException {
+        final int numberOfColumns = data.getNumberOfColumns();
+        putInt(MAGIC);
+        putInt(VERSION);
+        putInt(data.getNumberOfRows());
+        putInt(numberOfColumns);
+        putInt(data.getTargetColumn());
+        for (int column = 0; column < numberOfColumns; column++) {
+            putString(data.getAttribute(column).getName());
+            putByte((data.getAttribute(column).isContinuous() ? CONTINUOUS_ATTRIBUTE : 0) | (data.isContinuous(column) ? DOUBLE_COLUMN : 0));
+            if (!data.isContinuous(column)) {
+                final String[] dictionary = data.getDictionary(column);
+                putInt(dictionary.length);
+                for (final String value : dictionary) {
+                    putString(value);
+                }
+            }
+        }
+        for (int column = 0; column < numberOfColumns; column++) {
+            align();
+            if (data.isContinuous(column)) {
+                putDoubles(data.getContinuousColumn(column));
+            } else {
+                putInts(data.getDiscreteColumn(column));
+            }
+        }
+        flush();
+    }
+
+    private void putByte(final int value) throws IOException {
+        ensureRemaining(1);
+        this.buffer.put((byte) value);
+    }
+
+    private void putInt(final int value) throws IOException {
+        ensureRemaining(4);
+        this.buffer.putInt(value);
+    }
+
+    private void putString(final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        for (int offset = 0; offset < bytes.length; ) {
+            ensureRemaining(1);
+            final int length = Math.min(bytes.length - offset, this.buffer.remaining());
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void putDoubles(final double[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            ensureRemaining(8);
+            final int length = Math.min(values.length - offset, this.buffer.remaining() / 8);
+            this.buffer.asDoubleBuffer().put(values, offset, length);
+            this.buffer.position(this.buffer.position() + length * 8);
+            offset += length;
+        }
+    }
+
+    private void putInts(final int[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            ensureRemaining(4);
+            final int length = Math.min(values.length - offset, this.buffer.remaining() / 4);
+            this.buffer.asIntBuffer().put(values, offset, length);
+            this.buffer.position(this.buffer.position() + length * 4);
+            offset += length;
+        }
+    }
+
+    /**
+     * Pads the output to a multiple of 8 bytes
+     */
+    private void align() throws IOException {
+        while ((this.position + this.buffer.position()) % 8 != 0) {
+            putByte(0);
+        }
+    }
+
+    private void ensureRemaining(final int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.position += this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
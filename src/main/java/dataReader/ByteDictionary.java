@@ -0,0 +1,99 @@
+package dataReader;
+
+import com.google.common.collect.Lists;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Dictionary encoding of values given as byte ranges of a buffer.
+ * Codes are assigned in order of first appearance, a String is decoded only once per distinct value.
+ * Instances are not thread safe.
+ */
+class ByteDictionary {
+
+    private final List<byte[]> keys = Lists.newArrayList();
+    private final List<String> values = Lists.newArrayList();
+    private int[] table = new int[64]; // code + 1 of the key in each slot, 0 for free slots
+    private int[] hashes = new int[64];
+
+    /**
+     * @param buffer
+     * @param from
+     * @param to
+     * @return - code of the value held between from (inclusive) and to (exclusive)
+     */
+    int encode(final ByteBuffer buffer, final int from, final int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int slot = mix(hash) & (this.table.length - 1);
+        while (this.table[slot] != 0) {
+            final int code = this.table[slot] - 1;
+            if (this.hashes[slot] == hash && matches(this.keys.get(code), buffer, from, to)) {
+                return code;
+            }
+            slot = (slot + 1) & (this.table.length - 1);
+        }
+        final byte[] key = new byte[to - from];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = buffer.get(from + i);
+        }
+        final int code = this.keys.size();
+        this.keys.add(key);
+        this.values.add(new String(key, StandardCharsets.UTF_8));
+        this.table[slot] = code + 1;
+        this.hashes[slot] = hash;
+        if (this.keys.size() * 2 > this.table.length) {
+            grow();
+        }
+        return code;
+    }
+
+    /**
+     * @return - decoded value of each code
+     */
+    String[] getValues() {
+        return this.values.toArray(new String[this.values.size()]);
+    }
+
+    int size() {
+        return this.keys.size();
+    }
+
+    private static boolean matches(final byte[] key, final ByteBuffer buffer, final int from, final int to) {
+        if (key.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        final int[] table = new int[this.table.length * 2];
+        final int[] hashes = new int[this.table.length * 2];
+        for (int slot = 0; slot < this.table.length; slot++) {
+            if (this.table[slot] == 0) {
+                continue;
+            }
+            int target = mix(this.hashes[slot]) & (table.length - 1);
+            while (table[target] != 0) {
+                target = (target + 1) & (table.length - 1);
+            }
+            table[target] = this.table[slot];
+            hashes[target] = this.hashes[slot];
+        }
+        this.table = table;
+        this.hashes = hashes;
+    }
+}
@@ -1,39 +1,74 @@
 package dataReader;
 
+import com.google.common.collect.Lists;
+import driver.Attribute;
+import driver.DataMatrix;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * Reads a csv file with a header row into a DataMatrix.
+ * Records are streamed from the parser straight into typed column buffers and discarded,
+ * attribute types are inferred while reading unless they are declared. The last column is taken as the target.
+ * Unlike MappedCSVReader it reads the file once from start to end, so it also reads csv input that cannot be mapped,
+ * such as a named pipe.
+ *
  * Created by Suavek on 08/11/2016.
  */
-public class CSVReader {
+public class CSVReader implements DataReader {
 
-    private final CSVParser csvFileParser; // this is object of type iterable
-    private final List<CSVRecord> csvRecordList;
+    private final ArrayList<String> attributeNames;
+    private final DataMatrix dataMatrix;
 
     public CSVReader(String filePath) throws IOException {
+        this(filePath, null);
+    }
+
+    /**
+     * @param filePath
+     * @param attributes - attributes in column order matching the header, null to infer the types
+     * @throws IOException
+     */
+    public CSVReader(String filePath, List<Attribute> attributes) throws IOException {
         // Get and read File
-        final File file = new File(filePath);
-        final Reader fileReader = new FileReader(file);
-        // Parse file
-        final CSVFormat csvFileFormat = CSVFormat.DEFAULT.withFirstRecordAsHeader();
-        this.csvFileParser = new CSVParser(fileReader, csvFileFormat);
-        this.csvRecordList = csvFileParser.getRecords();
+        try (final Reader fileReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8);
+             // Parse file
+             final CSVParser csvFileParser = new CSVParser(fileReader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+            this.attributeNames = new ArrayList<>(csvFileParser.getHeaderMap().keySet());
+            final DataMatrix.Builder builder;
+            if (attributes == null) {
+                builder = DataMatrix.Builder.inferringTypes(this.attributeNames, this.attributeNames.size() - 1);
+            } else {
+                final List<String> names = Lists.newArrayList();
+                attributes.forEach(attribute -> names.add(attribute.getName()));
+                if (!names.equals(this.attributeNames)) {
+                    throw new IllegalArgumentException("Declared attributes " + names + " do not match the header " + this.attributeNames);
+                }
+                builder = new DataMatrix.Builder(attributes, attributes.size() - 1);
+            }
+            for (final CSVRecord record : csvFileParser) {
+                builder.addRow(record);
+            }
+            this.dataMatrix = builder.build();
+        }
     }
 
-    public ArrayList getAttributeNames() {
-        return new ArrayList(csvFileParser.getHeaderMap().keySet());
+    @Override
+    public ArrayList<String> getAttributeNames() {
+        return this.attributeNames;
     }
 
-    public List<CSVRecord> getDataSet() {
-        return this.csvRecordList;
+    @Override
+    public DataMatrix getDataMatrix() {
+        return this.dataMatrix;
     }
 }
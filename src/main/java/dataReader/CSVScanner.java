@@ -0,0 +1,331 @@
+package dataReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds records and field boundaries of a csv file directly in memory mapped windows of the file.
+ * Follows the rules of CSVFormat.DEFAULT: fields are separated by commas, may be enclosed in double quotes
+ * with embedded quotes doubled, records end at CR, LF or CRLF and empty lines are skipped.
+ * Instances are not thread safe, concurrent readers use a scanner each.
+ */
+class CSVScanner {
+
+    static final int WINDOW_SIZE = 1 << 30;
+
+    private static final int INCOMPLETE = -1;
+    private static final int NO_RECORD = -2;
+
+    // states of the quoting automaton used to align byte ranges to records
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    // next state by state and character class: quote, comma, line break, other
+    private static final int[][] TRANSITIONS = {
+            {QUOTED, FIELD_START, FIELD_START, UNQUOTED},
+            {UNQUOTED, FIELD_START, FIELD_START, UNQUOTED},
+            {QUOTE_IN_QUOTED, QUOTED, QUOTED, QUOTED},
+            {QUOTED, FIELD_START, FIELD_START, UNQUOTED}};
+
+    /**
+     * Receives the records found by the scanner
+     */
+    interface RecordHandler {
+        void record(Record record);
+    }
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean windowAtEnd;
+    private final Record record = new Record();
+
+    CSVScanner(final FileChannel channel) throws IOException {
+        this(channel, WINDOW_SIZE);
+    }
+
+    CSVScanner(final FileChannel channel, final int windowSize) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Passes every record starting between from (inclusive) and to (exclusive) to the handler.
+     * From has to be the start of a record.
+     *
+     * @param from
+     * @param to
+     * @param maxRecords - number of records after which scanning stops
+     * @param handler
+     * @return - file position following the last record passed to the handler
+     * @throws IOException
+     */
+    long scan(final long from, final long to, final long maxRecords, final RecordHandler handler) throws IOException {
+        long position = from;
+        long records = 0;
+        while (position < to && records < maxRecords) {
+            if (this.window == null || position < this.windowStart || position - this.windowStart >= this.window.limit()) {
+                map(position);
+            }
+            final int end = scanRecord((int) (position - this.windowStart));
+            if (end == INCOMPLETE) {
+                // map a window starting at the record, empty lines before it are already skipped
+                final long recordStart = this.windowStart + this.record.start;
+                if (this.windowStart == recordStart) {
+                    throw new IOException("Record at byte " + recordStart + " does not fit into " + this.windowSize + " bytes");
+                }
+                map(recordStart);
+                position = recordStart;
+                continue;
+            }
+            if (end == NO_RECORD || this.windowStart + this.record.start >= to) {
+                break;
+            }
+            handler.record(this.record);
+            records++;
+            position = this.windowStart + end;
+        }
+        return position;
+    }
+
+    /**
+     * Finds where records start in a byte range which begins after a line break, a position
+     * where the file is either between records or inside a quoted value spanning lines.
+     * The range is followed once for each of these cases, so ranges can be aligned independently
+     * and the actual case of each range chained from the start of the data afterwards.
+     *
+     * @param from - position following a line break or the start of the data
+     * @param to   - position following a line break or the end of file
+     * @return
+     * @throws IOException
+     */
+    Alignment align(final long from, final long to) throws IOException {
+        final Alignment alignment = new Alignment();
+        int betweenRecords = FIELD_START;
+        int insideQuotes = QUOTED;
+        long position = from;
+        while (position < to) {
+            if (this.window == null || position < this.windowStart || position - this.windowStart >= this.window.limit()) {
+                map(position);
+            }
+            final ByteBuffer buffer = this.window;
+            final int end = (int) Math.min(buffer.limit(), to - this.windowStart);
+            for (int i = (int) (position - this.windowStart); i < end; i++) {
+                final byte c = buffer.get(i);
+                final int characterClass = c == '"' ? 0 : c == ',' ? 1 : c == '\n' || c == '\r' ? 2 : 3;
+                if (characterClass == 2 && insideQuotes != QUOTED && alignment.firstRecordInsideQuotes < 0) {
+                    alignment.firstRecordInsideQuotes = this.windowStart + i + 1;
+                }
+                betweenRecords = TRANSITIONS[betweenRecords][characterClass];
+                insideQuotes = TRANSITIONS[insideQuotes][characterClass];
+            }
+            position = this.windowStart + end;
+        }
+        alignment.endsInsideQuotesFromRecords = betweenRecords == QUOTED;
+        alignment.endsInsideQuotesFromQuotes = insideQuotes == QUOTED;
+        return alignment;
+    }
+
+    /**
+     * Record boundaries of a byte range for both cases possible at its start
+     */
+    static final class Alignment {
+
+        private long firstRecordInsideQuotes = -1;
+        private boolean endsInsideQuotesFromRecords;
+        private boolean endsInsideQuotesFromQuotes;
+
+        /**
+         * @param from               - start of the range
+         * @param startsInsideQuotes
+         * @return - position of the first record starting in the range, -1 if there is none
+         */
+        long firstRecord(final long from, final boolean startsInsideQuotes) {
+            return startsInsideQuotes ? this.firstRecordInsideQuotes : from;
+        }
+
+        /**
+         * @param startsInsideQuotes
+         * @return - whether the end of the range is inside a quoted value
+         */
+        boolean endsInsideQuotes(final boolean startsInsideQuotes) {
+            return startsInsideQuotes ? this.endsInsideQuotesFromQuotes : this.endsInsideQuotesFromRecords;
+        }
+    }
+
+    private void map(final long position) throws IOException {
+        final long size = Math.min(this.windowSize, this.fileSize - position);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        this.windowStart = position;
+        this.windowAtEnd = position + size == this.fileSize;
+        this.record.window = this.window;
+    }
+
+    /**
+     * Finds the fields of the record starting at the given window offset
+     *
+     * @param position
+     * @return - offset following the record, INCOMPLETE if the record runs past the window or NO_RECORD at the end of file
+     */
+    private int scanRecord(int position) {
+        final ByteBuffer buffer = this.window;
+        final int limit = buffer.limit();
+        final Record record = this.record;
+        record.clear();
+        // skip empty lines
+        while (position < limit && (buffer.get(position) == '\n' || buffer.get(position) == '\r')) {
+            position++;
+        }
+        record.start = position;
+        if (position == limit) {
+            return this.windowAtEnd ? NO_RECORD : INCOMPLETE;
+        }
+        while (true) {
+            if (position < limit && buffer.get(position) == '"') {
+                final int contentStart = ++position;
+                int contentEnd = -1;
+                boolean escaped = false;
+                while (position < limit) {
+                    if (buffer.get(position) == '"') {
+                        if (position + 1 == limit && !this.windowAtEnd) {
+                            return INCOMPLETE;
+                        }
+                        if (position + 1 < limit && buffer.get(position + 1) == '"') {
+                            escaped = true;
+                            position += 2;
+                            continue;
+                        }
+                        contentEnd = position++;
+                        break;
+                    }
+                    position++;
+                }
+                if (contentEnd < 0) {
+                    if (!this.windowAtEnd) {
+                        return INCOMPLETE;
+                    }
+                    // unterminated quote runs to the end of file
+                    contentEnd = limit;
+                }
+                // anything between the closing quote and the delimiter is dropped
+                while (position < limit && !isDelimiter(buffer.get(position))) {
+                    position++;
+                }
+                record.addQuoted(contentStart, contentEnd, escaped);
+            } else {
+                final int fieldStart = position;
+                while (position < limit && !isDelimiter(buffer.get(position))) {
+                    position++;
+                }
+                record.add(fieldStart, position);
+            }
+            if (position == limit) {
+                return this.windowAtEnd ? position : INCOMPLETE;
+            }
+            if (buffer.get(position++) != ',') {
+                // end of line, a following LF of CRLF is skipped as an empty line
+                return position;
+            }
+        }
+    }
+
+    private static boolean isDelimiter(final byte c) {
+        return c == ',' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Fields of a record. Values are byte ranges of the mapped window,
+     * quoted values with doubled quotes are copied without the escaping into a separate buffer.
+     */
+    static final class Record {
+
+        private ByteBuffer window;
+        private ByteBuffer unescaped = ByteBuffer.allocate(256);
+        private int start;
+        private int size;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] isUnescaped = new boolean[16];
+
+        /**
+         * @return - number of fields
+         */
+        int size() {
+            return this.size;
+        }
+
+        ByteBuffer buffer(final int field) {
+            return this.isUnescaped[field] ? this.unescaped : this.window;
+        }
+
+        int start(final int field) {
+            return this.starts[field];
+        }
+
+        int end(final int field) {
+            return this.ends[field];
+        }
+
+        String getString(final int field) {
+            final ByteBuffer buffer = buffer(field);
+            final byte[] bytes = new byte[this.ends[field] - this.starts[field]];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(this.starts[field] + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void clear() {
+            this.size = 0;
+            this.unescaped.clear();
+        }
+
+        private void add(final int from, final int to) {
+            if (this.size == this.starts.length) {
+                this.starts = Arrays.copyOf(this.starts, this.size * 2);
+                this.ends = Arrays.copyOf(this.ends, this.size * 2);
+                this.isUnescaped = Arrays.copyOf(this.isUnescaped, this.size * 2);
+            }
+            this.starts[this.size] = from;
+            this.ends[this.size] = to;
+            this.isUnescaped[this.size] = false;
+            this.size++;
+        }
+
+        private void addQuoted(final int from, final int to, final boolean escaped) {
+            if (!escaped) {
+                add(from, to);
+                return;
+            }
+            if (this.unescaped.remaining() < to - from) {
+                final ByteBuffer unescaped = ByteBuffer.allocate(Math.max(this.unescaped.capacity() * 2, this.unescaped.position() + to - from));
+                this.unescaped.flip();
+                unescaped.put(this.unescaped);
+                this.unescaped = unescaped;
+            }
+            final int start = this.unescaped.position();
+            for (int i = from; i < to; i++) {
+                final byte c = this.window.get(i);
+                this.unescaped.put(c);
+                if (c == '"') {
+                    // skip the second quote of the pair
+                    i++;
+                }
+            }
+            add(start, this.unescaped.position());
+            this.isUnescaped[this.size - 1] = true;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package dataReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Reads the records of a csv file as typed columns: the header row, the inference of the attribute types and
+ * the parsing or dictionary encoding of every value. MappedCSVReader fills columns in memory with it,
+ * SpilledData writes them to spill files. Instances are not thread safe, concurrent readers use a scanner each.
+ */
+final class ColumnScanner {
+
+    private static final ByteBuffer BLANK = ByteBuffer.allocate(0);
+
+    /**
+     * Receives the values of the records in row order, and within a record in column order
+     */
+    interface ColumnSink {
+
+        void putNumber(int column, double value) throws IOException;
+
+        void putCode(int column, int code) throws IOException;
+
+        void endRecord() throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final CSVScanner scanner;
+    private final NumberParser parser = new NumberParser();
+
+    ColumnScanner(final FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.scanner = new CSVScanner(channel);
+    }
+
+    long getFileSize() {
+        return this.scanner.getFileSize();
+    }
+
+    /**
+     * Reads the header row, after a UTF-8 byte order mark if the file starts with one
+     *
+     * @param names - receives the names of the columns
+     * @return - file position of the first record
+     * @throws IOException
+     */
+    long readHeader(final List<String> names) throws IOException {
+        return this.scanner.scan(byteOrderMarkLength(), getFileSize(), 1, record -> {
+            for (int field = 0; field < record.size(); field++) {
+                names.add(record.getString(field));
+            }
+        });
+    }
+
+    /**
+     * Counts the records starting between from (inclusive) and to (exclusive) and clears the flag of every column
+     * holding a value which does not parse as a number
+     *
+     * @param from
+     * @param to
+     * @param continuous - flag of each column which may still be continuous
+     * @return - number of records
+     * @throws IOException
+     */
+    long inferTypes(final long from, final long to, final boolean[] continuous) throws IOException {
+        final long[] numberOfRecords = {0};
+        this.scanner.scan(from, to, Long.MAX_VALUE, record -> {
+            numberOfRecords[0]++;
+            for (int column = 0; column < continuous.length && column < record.size(); column++) {
+                if (continuous[column] && !this.parser.parse(record.buffer(column), record.start(column), record.end(column))) {
+                    continuous[column] = false;
+                }
+            }
+        });
+        return numberOfRecords[0];
+    }
+
+    /**
+     * Passes the values of the records starting at from to the sink, parsed as numbers in continuous columns
+     * and encoded by the dictionaries of discrete ones.
+     *
+     * @param from
+     * @param to
+     * @param numberOfRecords - number of records to read
+     * @param names           - names of the columns, for the message of a value which is not a number
+     * @param continuous      - type of each column
+     * @param dictionaries    - dictionary of each discrete column, null for continuous ones
+     * @param sink
+     * @throws IOException
+     */
+    void fill(final long from, final long to, final long numberOfRecords, final List<String> names, final boolean[] continuous,
+              final ByteDictionary[] dictionaries, final ColumnSink sink) throws IOException {
+        final int numberOfColumns = continuous.length;
+        try {
+            this.scanner.scan(from, to, numberOfRecords, record -> {
+                try {
+                    for (int column = 0; column < numberOfColumns; column++) {
+                        // values missing at the end of the record are blanks
+                        final boolean present = column < record.size();
+                        final ByteBuffer buffer = present ? record.buffer(column) : BLANK;
+                        final int start = present ? record.start(column) : 0;
+                        final int end = present ? record.end(column) : 0;
+                        if (continuous[column]) {
+                            if (!this.parser.parse(buffer, start, end)) {
+                                throw new NumberFormatException("Value \"" + record.getString(column) + "\" of continuous attribute "
+                                        + names.get(column) + " is not a number");
+                            }
+                            sink.putNumber(column, this.parser.getValue());
+                        } else {
+                            sink.putCode(column, dictionaries[column].encode(buffer, start, end));
+                        }
+                    }
+                    sink.endRecord();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return - length of the UTF-8 byte order mark at the start of the file, 0 if there is none
+     * @throws IOException
+     */
+    private int byteOrderMarkLength() throws IOException {
+        final ByteBuffer start = ByteBuffer.allocate(3);
+        this.channel.read(start, 0);
+        return start.position() == 3 && (start.get(0) & 0xff) == 0xEF && (start.get(1) & 0xff) == 0xBB && (start.get(2) & 0xff) == 0xBF ?
+                3 :
+                0;
+    }
+}
@@ -0,0 +1,15 @@
+package dataReader;
+
+import driver.DataMatrix;
+
+import java.util.ArrayList;
+
+/**
+ * Source of a data set, the last column is taken as the target.
+ */
+public interface DataReader {
+
+    ArrayList<String> getAttributeNames();
+
+    DataMatrix getDataMatrix();
+}
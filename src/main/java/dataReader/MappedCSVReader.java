@@ -0,0 +1,349 @@
+package dataReader;
+
+import com.google.common.collect.Lists;
+import driver.Attribute;
+import driver.DataMatrix;
+import driver.ForkJoinTasks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reads a csv file with a header row into a DataMatrix by memory mapping the file.
+ * Field boundaries are found directly in the mapped bytes, numbers are parsed from the bytes
+ * and discrete values are dictionary encoded from the bytes, so no String is built per field.
+ * The file is read twice: the first pass counts the rows and infers attribute types unless they are declared,
+ * the second one fills columns allocated to their final size. The file is expected in UTF-8.
+ * <p>
+ * Given a pool, the file is split into byte ranges aligned to records which are read concurrently,
+ * each range filling its own segment of the columns so that rows keep the order of the file.
+ */
+public class MappedCSVReader implements DataReader {
+
+    private static final long MIN_RANGE_SIZE = 1 << 20;
+
+    private final ArrayList<String> attributeNames = Lists.newArrayList();
+    private final DataMatrix dataMatrix;
+
+    /**
+     * Reads the file on the calling thread
+     *
+     * @param filePath
+     * @throws IOException
+     */
+    public MappedCSVReader(final String filePath) throws IOException {
+        this(filePath, null);
+    }
+
+    /**
+     * Reads ranges of the file concurrently, up to one range per thread of the pool
+     *
+     * @param filePath
+     * @param pool
+     * @throws IOException
+     */
+    public MappedCSVReader(final String filePath, final ForkJoinPool pool) throws IOException {
+        this(filePath, null, pool);
+    }
+
+    /**
+     * Reads the file into columns of declared types, skipping type inference
+     *
+     * @param filePath
+     * @param attributes - attributes in column order matching the header, null to infer the types
+     * @param pool       - pool reading ranges of the file concurrently, null to read on the calling thread
+     * @throws IOException
+     */
+    public MappedCSVReader(final String filePath, final List<Attribute> attributes, final ForkJoinPool pool) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            final ColumnScanner scanner = new ColumnScanner(channel);
+            final long fileSize = scanner.getFileSize();
+            final long dataStart = scanner.readHeader(this.attributeNames);
+            final int numberOfColumns = this.attributeNames.size();
+            final int targetColumn = numberOfColumns - 1;
+
+            if (attributes != null && !namesOf(attributes).equals(this.attributeNames)) {
+                throw new IllegalArgumentException("Declared attributes " + namesOf(attributes) + " do not match the header " + this.attributeNames);
+            }
+
+            final List<Range> ranges = split(channel, pool, dataStart, fileSize);
+
+            // first pass counts the rows and unless types are declared, infers them:
+            // a column is continuous while all of its values parse as numbers, the target is always discrete
+            final boolean infer = attributes == null;
+            runAll(pool, ranges, range -> range.inferTypes(numberOfColumns, targetColumn, infer));
+            final boolean[] continuous = new boolean[numberOfColumns];
+            for (int column = 0; column < numberOfColumns; column++) {
+                continuous[column] = column != targetColumn && (infer || attributes.get(column).isContinuous());
+            }
+            long numberOfRows = 0;
+            for (final Range range : ranges) {
+                range.firstRow = (int) numberOfRows;
+                numberOfRows += range.numberOfRows;
+                if (numberOfRows > Integer.MAX_VALUE - 8) {
+                    throw new IOException("Too many rows in " + filePath);
+                }
+                if (infer) {
+                    for (int column = 0; column < numberOfColumns; column++) {
+                        continuous[column] &= range.continuous[column];
+                    }
+                }
+            }
+
+            // second pass, each range fills its own rows
+            final int rows = (int) numberOfRows;
+            final double[][] continuousColumns = new double[numberOfColumns][];
+            final int[][] discreteColumns = new int[numberOfColumns][];
+            for (int column = 0; column < numberOfColumns; column++) {
+                if (continuous[column]) {
+                    continuousColumns[column] = new double[rows];
+                } else {
+                    discreteColumns[column] = new int[rows];
+                }
+            }
+            runAll(pool, ranges, range -> range.fill(continuous, continuousColumns, discreteColumns));
+
+            // codes of each range are local to its dictionaries, translate them into codes of a merged sorted dictionary
+            final Attribute[] columnAttributes = new Attribute[numberOfColumns];
+            final String[][] dictionaries = new String[numberOfColumns][];
+            for (int column = 0; column < numberOfColumns; column++) {
+                columnAttributes[column] = infer ?
+                        new Attribute(this.attributeNames.get(column), continuous[column]) :
+                        attributes.get(column);
+                if (!continuous[column]) {
+                    dictionaries[column] = mergeDictionaries(ranges, column);
+                }
+            }
+            if (ranges.size() > 1) {
+                runAll(pool, ranges, range -> range.recode(dictionaries, discreteColumns));
+            }
+            this.dataMatrix = DataMatrix.of(columnAttributes, targetColumn, continuousColumns, discreteColumns, dictionaries);
+        }
+    }
+
+    /**
+     * Splits the data into ranges of whole records. Nominal boundaries are moved past the next line break,
+     * then the quoting state at each boundary is chained from the start of the data so that
+     * line breaks inside quoted values do not start records.
+     *
+     * @param channel
+     * @param pool      - pool the ranges are read on, null to read a single range on the calling thread
+     * @param dataStart
+     * @param fileSize
+     * @return - non empty ranges in file order
+     * @throws IOException
+     */
+    private List<Range> split(final FileChannel channel, final ForkJoinPool pool, final long dataStart, final long fileSize) throws IOException {
+        final long size = fileSize - dataStart;
+        final int parallelism = pool == null ? 1 : pool.getParallelism();
+        final int numberOfRanges = (int) Math.max(1, Math.min(parallelism, size / MIN_RANGE_SIZE));
+        final List<Range> ranges = Lists.newArrayList();
+        long from = dataStart;
+        for (int i = 1; i <= numberOfRanges; i++) {
+            final long to = i == numberOfRanges ? fileSize : followingLineBreak(channel, dataStart + size / numberOfRanges * i);
+            if (to > from) {
+                ranges.add(new Range(channel, from, to));
+            }
+            from = to;
+        }
+        if (ranges.size() == 1) {
+            return ranges;
+        }
+
+        final List<CSVScanner.Alignment> alignments = runAll(pool, ranges, range -> new CSVScanner(channel).align(range.from, range.to));
+        final List<Range> aligned = Lists.newArrayList();
+        boolean insideQuotes = false;
+        for (int i = 0; i < ranges.size(); i++) {
+            final Range range = ranges.get(i);
+            final CSVScanner.Alignment alignment = alignments.get(i);
+            final long firstRecord = alignment.firstRecord(range.from, insideQuotes);
+            if (firstRecord >= 0 && firstRecord < range.to) {
+                // records starting in the range are read from the range, the last one may run into the following ranges
+                aligned.add(new Range(channel, firstRecord, range.to));
+            }
+            insideQuotes = alignment.endsInsideQuotes(insideQuotes);
+        }
+        return aligned;
+    }
+
+    /**
+     * @param channel
+     * @param position
+     * @return - position following the first line break at or after the given position, or the end of file
+     * @throws IOException
+     */
+    private static long followingLineBreak(final FileChannel channel, long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (true) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n' || buffer.get(i) == '\r') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private static List<String> namesOf(final List<Attribute> attributes) {
+        final List<String> names = Lists.newArrayList();
+        for (final Attribute attribute : attributes) {
+            names.add(attribute.getName());
+        }
+        return names;
+    }
+
+    private static String[] mergeDictionaries(final List<Range> ranges, final int column) {
+        if (ranges.size() == 1) {
+            return ranges.get(0).dictionaries[column].getValues();
+        }
+        final TreeSet<String> values = new TreeSet<>();
+        for (final Range range : ranges) {
+            values.addAll(Arrays.asList(range.dictionaries[column].getValues()));
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Part of a task run for every range
+     */
+    private interface RangeTask<T> {
+        T run(Range range) throws IOException;
+    }
+
+    /**
+     * Runs the task for every range, concurrently when a pool is given. Within a task of the pool the ranges are forked,
+     * so reading from a task of the pool, such as the common pool, does not block a worker.
+     *
+     * @param pool
+     * @param ranges
+     * @param task
+     * @return - result of each range
+     * @throws IOException
+     */
+    private static <T> List<T> runAll(final ForkJoinPool pool, final List<Range> ranges, final RangeTask<T> task) throws IOException {
+        final List<T> results = Lists.newArrayList();
+        if (pool == null || ranges.size() == 1) {
+            for (final Range range : ranges) {
+                results.add(task.run(range));
+            }
+            return results;
+        }
+        final List<Callable<T>> tasks = Lists.newArrayList();
+        for (final Range range : ranges) {
+            tasks.add(() -> {
+                try {
+                    return task.run(range);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        try {
+            return ForkJoinTasks.invokeAll(pool, tasks);
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public ArrayList<String> getAttributeNames() {
+        return this.attributeNames;
+    }
+
+    @Override
+    public DataMatrix getDataMatrix() {
+        return this.dataMatrix;
+    }
+
+    /**
+     * Records starting between from (inclusive) and to (exclusive), read with a scanner of their own
+     */
+    private final class Range {
+
+        private final long from;
+        private final long to;
+        private final ColumnScanner scanner;
+        private long numberOfRows;
+        private int firstRow;
+        private boolean[] continuous;
+        private ByteDictionary[] dictionaries;
+
+        private Range(final FileChannel channel, final long from, final long to) throws IOException {
+            this.from = from;
+            this.to = to;
+            this.scanner = new ColumnScanner(channel);
+        }
+
+        private Void inferTypes(final int numberOfColumns, final int targetColumn, final boolean infer) throws IOException {
+            final boolean[] continuous = new boolean[numberOfColumns];
+            for (int column = 0; column < numberOfColumns; column++) {
+                continuous[column] = infer && column != targetColumn;
+            }
+            this.numberOfRows = this.scanner.inferTypes(this.from, this.to, continuous);
+            this.continuous = continuous;
+            return null;
+        }
+
+        private Void fill(final boolean[] continuous, final double[][] continuousColumns, final int[][] discreteColumns) throws IOException {
+            final int numberOfColumns = continuous.length;
+            this.dictionaries = new ByteDictionary[numberOfColumns];
+            for (int column = 0; column < numberOfColumns; column++) {
+                if (!continuous[column]) {
+                    this.dictionaries[column] = new ByteDictionary();
+                }
+            }
+            final int[] row = {this.firstRow};
+            this.scanner.fill(this.from, this.to, this.numberOfRows, MappedCSVReader.this.attributeNames, continuous, this.dictionaries,
+                    new ColumnScanner.ColumnSink() {
+                        @Override
+                        public void putNumber(final int column, final double value) {
+                            continuousColumns[column][row[0]] = value;
+                        }
+
+                        @Override
+                        public void putCode(final int column, final int code) {
+                            discreteColumns[column][row[0]] = code;
+                        }
+
+                        @Override
+                        public void endRecord() {
+                            row[0]++;
+                        }
+                    });
+            return null;
+        }
+
+        private Void recode(final String[][] dictionaries, final int[][] discreteColumns) {
+            for (int column = 0; column < dictionaries.length; column++) {
+                if (dictionaries[column] == null) {
+                    continue;
+                }
+                final String[] values = this.dictionaries[column].getValues();
+                final int[] recode = new int[values.length];
+                for (int code = 0; code < values.length; code++) {
+                    recode[code] = Arrays.binarySearch(dictionaries[column], values[code]);
+                }
+                final int[] codes = discreteColumns[column];
+                for (int row = this.firstRow; row < this.firstRow + this.numberOfRows; row++) {
+                    codes[row] = recode[codes[row]];
+                }
+            }
+            return null;
+        }
+    }
+}
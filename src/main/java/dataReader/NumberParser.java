@@ -0,0 +1,138 @@
+package dataReader;
+
+import driver.DataMatrix;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses decimal numbers straight from bytes of a buffer.
+ * Plain decimals with up to 18 significant digits and a small exponent are converted exactly without building a String,
+ * anything else is checked by DataMatrix.isNumber and converted by Double.parseDouble. Blank fields parse as missing values (NaN).
+ * Instances keep the last parsed value and are not thread safe.
+ */
+class NumberParser {
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private double value;
+
+    /**
+     * @return - value of the last successful parse
+     */
+    double getValue() {
+        return value;
+    }
+
+    /**
+     * Parses the bytes between from (inclusive) and to (exclusive)
+     *
+     * @param buffer
+     * @param from
+     * @param to
+     * @return - true if the bytes hold a number or a blank
+     */
+    boolean parse(final ByteBuffer buffer, int from, int to) {
+        // trim the same characters as Double.parseDouble
+        while (from < to && (buffer.get(from) & 0xff) <= ' ') {
+            from++;
+        }
+        while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            this.value = Double.NaN;
+            return true;
+        }
+        int position = from;
+        final boolean negative = buffer.get(position) == '-';
+        if (negative || buffer.get(position) == '+') {
+            position++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean point = false;
+        for (; position < to; position++) {
+            final byte c = buffer.get(position);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++significantDigits > 18) {
+                        return parseSlowly(buffer, from, to);
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (point) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!digits) {
+            return parseSlowly(buffer, from, to);
+        }
+        if (position < to) {
+            final byte c = buffer.get(position);
+            if (c != 'e' && c != 'E') {
+                return parseSlowly(buffer, from, to);
+            }
+            position++;
+            final boolean negativeExponent = position < to && buffer.get(position) == '-';
+            if (position < to && (negativeExponent || buffer.get(position) == '+')) {
+                position++;
+            }
+            if (position == to) {
+                return parseSlowly(buffer, from, to);
+            }
+            int explicitExponent = 0;
+            for (; position < to; position++) {
+                final byte e = buffer.get(position);
+                if (e < '0' || e > '9' || explicitExponent > 1000) {
+                    return parseSlowly(buffer, from, to);
+                }
+                explicitExponent = explicitExponent * 10 + (e - '0');
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        double number;
+        if (mantissa == 0) {
+            number = 0;
+        } else if (mantissa < MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            // both operands are exact so the single rounding matches Double.parseDouble
+            number = exponent >= 0 ?
+                    mantissa * POWERS_OF_TEN[exponent] :
+                    mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return parseSlowly(buffer, from, to);
+        }
+        // adding zero folds -0.0 into 0.0 so that sorting agrees with <= comparisons
+        this.value = (negative ? -number : number) + 0.0;
+        return true;
+    }
+
+    private boolean parseSlowly(final ByteBuffer buffer, final int from, final int to) {
+        final byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        final String value = new String(bytes, StandardCharsets.UTF_8);
+        if (!DataMatrix.isNumber(value)) {
+            return false;
+        }
+        this.value = Double.parseDouble(value) + 0.0;
+        return true;
+    }
+}
@@ -0,0 +1,429 @@
+package dataReader;
+
+import com.google.common.collect.Lists;
+import driver.Attribute;
+import driver.DataMatrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A data set kept on disk, one spill file per column, for data sets larger than the heap.
+ * Only the attributes and the dictionaries are held in memory.
+ * <p>
+ * A spill file holds the values of a column in row order without a header, little endian:
+ * doubles for continuous columns, int codes of the sorted dictionary for discrete ones.
+ * Columns are read and written sequentially in blocks by ColumnReader and ColumnWriter.
+ */
+public class SpilledData {
+
+    private static final String SUFFIX = ".spill";
+    private static final int BUFFER_SIZE = 1 << 20;
+    // direct memory shared by the buffers of the spill files open at once, each buffer holding at least the floor
+    private static final int BUFFER_BUDGET = 64 << 20;
+    private static final int MINIMUM_BUFFER_SIZE = 64 << 10;
+
+    private final Path directory;
+    private final ArrayList<String> attributeNames;
+    private final Attribute[] attributes;
+    private final int targetColumn;
+    private final int numberOfRows;
+    private final String[][] dictionaries;
+
+    private SpilledData(final Path directory, final ArrayList<String> attributeNames, final Attribute[] attributes,
+                        final int targetColumn, final int numberOfRows, final String[][] dictionaries) {
+        this.directory = directory;
+        this.attributeNames = attributeNames;
+        this.attributes = attributes;
+        this.targetColumn = targetColumn;
+        this.numberOfRows = numberOfRows;
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Streams a csv file with a header row into spill files, the file is read twice on the calling thread.
+     * The first pass counts the rows and infers the attribute types as MappedCSVReader does, the second one writes the columns.
+     * Discrete columns are re-coded afterwards when the order of first appearance is not the order of the values.
+     *
+     * @param csvPath
+     * @param directory - directory receiving the spill files, created if missing
+     * @return
+     * @throws IOException
+     */
+    public static SpilledData spill(final String csvPath, final String directory) throws IOException {
+        final Path spillDirectory = Files.createDirectories(Paths.get(directory));
+        try (final FileChannel channel = FileChannel.open(Paths.get(csvPath), StandardOpenOption.READ)) {
+            final ColumnScanner scanner = new ColumnScanner(channel);
+            final long fileSize = scanner.getFileSize();
+            final ArrayList<String> attributeNames = Lists.newArrayList();
+            final long dataStart = scanner.readHeader(attributeNames);
+            final int numberOfColumns = attributeNames.size();
+            final int targetColumn = numberOfColumns - 1;
+
+            // first pass, a column is continuous while all of its values parse as numbers, the target is always discrete
+            final boolean[] continuous = new boolean[numberOfColumns];
+            Arrays.fill(continuous, true);
+            continuous[targetColumn] = false;
+            final long numberOfRows = scanner.inferTypes(dataStart, fileSize, continuous);
+            if (numberOfRows > Integer.MAX_VALUE - 8) {
+                throw new IOException("Too many rows in " + csvPath);
+            }
+
+            // second pass writes every column to its own file
+            final ColumnWriter[] writers = new ColumnWriter[numberOfColumns];
+            final ByteDictionary[] byteDictionaries = new ByteDictionary[numberOfColumns];
+            final int bufferSize = getBufferSize(numberOfColumns);
+            try {
+                for (int column = 0; column < numberOfColumns; column++) {
+                    writers[column] = ColumnWriter.create(spillDirectory.resolve(column + SUFFIX), bufferSize);
+                    if (!continuous[column]) {
+                        byteDictionaries[column] = new ByteDictionary();
+                    }
+                }
+                scanner.fill(dataStart, fileSize, numberOfRows, attributeNames, continuous, byteDictionaries, new ColumnScanner.ColumnSink() {
+                    @Override
+                    public void putNumber(final int column, final double value) throws IOException {
+                        writers[column].putDouble(value);
+                    }
+
+                    @Override
+                    public void putCode(final int column, final int code) throws IOException {
+                        writers[column].putInt(code);
+                    }
+
+                    @Override
+                    public void endRecord() {
+                    }
+                });
+            } finally {
+                for (final ColumnWriter writer : writers) {
+                    if (writer != null) {
+                        writer.close();
+                    }
+                }
+            }
+
+            final Attribute[] attributes = new Attribute[numberOfColumns];
+            final String[][] dictionaries = new String[numberOfColumns][];
+            for (int column = 0; column < numberOfColumns; column++) {
+                attributes[column] = new Attribute(attributeNames.get(column), continuous[column]);
+                if (!continuous[column]) {
+                    dictionaries[column] = sortDictionary(spillDirectory.resolve(column + SUFFIX), (int) numberOfRows,
+                            byteDictionaries[column].getValues());
+                }
+            }
+            attributes[targetColumn].setAsTarget();
+            return new SpilledData(spillDirectory, attributeNames, attributes, targetColumn, (int) numberOfRows, dictionaries);
+        }
+    }
+
+    /**
+     * Re-codes a spilled discrete column so that codes follow the ascending order of the values
+     *
+     * @param file
+     * @param numberOfRows
+     * @param dictionary   - value of each code in order of first appearance
+     * @return - sorted dictionary
+     * @throws IOException
+     */
+    private static String[] sortDictionary(final Path file, final int numberOfRows, final String[] dictionary) throws IOException {
+        final String[] values = dictionary.clone();
+        Arrays.sort(values);
+        if (Arrays.equals(values, dictionary)) {
+            return values;
+        }
+        final int[] recode = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            recode[code] = Arrays.binarySearch(values, dictionary[code]);
+        }
+        final Path recoded = file.resolveSibling(file.getFileName() + ".recoded");
+        try (final ColumnReader reader = ColumnReader.open(file); final ColumnWriter writer = ColumnWriter.create(recoded)) {
+            final int[] codes = new int[BUFFER_SIZE / 4];
+            for (int row = 0; row < numberOfRows; row += codes.length) {
+                final int length = Math.min(codes.length, numberOfRows - row);
+                reader.getInts(codes, length);
+                for (int i = 0; i < length; i++) {
+                    codes[i] = recode[codes[i]];
+                }
+                writer.putInts(codes, length);
+            }
+        }
+        Files.move(recoded, file, StandardCopyOption.REPLACE_EXISTING);
+        return values;
+    }
+
+    /**
+     * @param column
+     * @return - sequential reader of the spill file of the column
+     * @throws IOException
+     */
+    public ColumnReader openColumn(final int column) throws IOException {
+        return ColumnReader.open(this.directory.resolve(column + SUFFIX));
+    }
+
+    /**
+     * @param column
+     * @param bufferSize - size of the direct buffer, see getBufferSize
+     * @return - sequential reader of the spill file of the column
+     * @throws IOException
+     */
+    public ColumnReader openColumn(final int column, final int bufferSize) throws IOException {
+        return ColumnReader.open(this.directory.resolve(column + SUFFIX), bufferSize);
+    }
+
+    /**
+     * Sizes the buffers of spill files read or written together, such as one per column,
+     * so that their direct memory stays within a budget however many columns there are
+     *
+     * @param openFiles - number of spill files open at the same time
+     * @return - equal share of the budget, at most the size of a single file's buffer and at least the floor
+     */
+    public static int getBufferSize(final int openFiles) {
+        final int share = BUFFER_BUDGET / Math.max(1, openFiles) & ~7;
+        return Math.max(MINIMUM_BUFFER_SIZE, Math.min(BUFFER_SIZE, share));
+    }
+
+    /**
+     * @param name
+     * @return - path of a work file in the spill directory, such as the intermediate columns of an induction
+     */
+    public Path getWorkFile(final String name) {
+        return this.directory.resolve(name + SUFFIX);
+    }
+
+    /**
+     * Deletes the spill files of the columns
+     *
+     * @throws IOException
+     */
+    public void delete() throws IOException {
+        for (int column = 0; column < this.attributes.length; column++) {
+            Files.deleteIfExists(this.directory.resolve(column + SUFFIX));
+        }
+    }
+
+    /**
+     * @return - a data matrix without rows holding the attributes and dictionaries, e.g. to compile a tree against
+     */
+    public DataMatrix getSchema() {
+        final double[][] continuousColumns = new double[this.attributes.length][];
+        final int[][] discreteColumns = new int[this.attributes.length][];
+        for (int column = 0; column < this.attributes.length; column++) {
+            if (isContinuous(column)) {
+                continuousColumns[column] = new double[0];
+            } else {
+                discreteColumns[column] = new int[0];
+            }
+        }
+        return DataMatrix.of(this.attributes.clone(), this.targetColumn, continuousColumns, discreteColumns, this.dictionaries.clone());
+    }
+
+    public ArrayList<String> getAttributeNames() {
+        return this.attributeNames;
+    }
+
+    public int getNumberOfRows() {
+        return this.numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return this.attributes.length;
+    }
+
+    public int getTargetColumn() {
+        return this.targetColumn;
+    }
+
+    public Attribute getAttribute(final int column) {
+        return this.attributes[column];
+    }
+
+    /**
+     * @param column
+     * @return - true if the column is spilled as doubles, false if as dictionary codes
+     */
+    public boolean isContinuous(final int column) {
+        return this.dictionaries[column] == null;
+    }
+
+    /**
+     * @param column
+     * @return - values of the codes of a discrete column in ascending order, null for continuous columns
+     */
+    public String[] getDictionary(final int column) {
+        return this.dictionaries[column];
+    }
+
+    public String[] getLabelDictionary() {
+        return this.dictionaries[this.targetColumn];
+    }
+
+    /**
+     * Reads the values of a spill file in row order
+     */
+    public static final class ColumnReader implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        private ColumnReader(final FileChannel channel, final int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            this.buffer.limit(0);
+        }
+
+        public static ColumnReader open(final Path file) throws IOException {
+            return open(file, BUFFER_SIZE);
+        }
+
+        /**
+         * @param file
+         * @param bufferSize - size of the direct buffer, see getBufferSize
+         * @return
+         * @throws IOException
+         */
+        public static ColumnReader open(final Path file, final int bufferSize) throws IOException {
+            return new ColumnReader(FileChannel.open(file, StandardOpenOption.READ), bufferSize);
+        }
+
+        /**
+         * @param values - receives the values of the following rows
+         * @param length - number of rows to read
+         * @throws IOException
+         */
+        public void getInts(final int[] values, final int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                ensureRemaining(4);
+                final int count = Math.min(length - offset, this.buffer.remaining() / 4);
+                this.buffer.asIntBuffer().get(values, offset, count);
+                this.buffer.position(this.buffer.position() + count * 4);
+                offset += count;
+            }
+        }
+
+        /**
+         * @param values - receives the values of the following rows
+         * @param length - number of rows to read
+         * @throws IOException
+         */
+        public void getDoubles(final double[] values, final int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                ensureRemaining(8);
+                final int count = Math.min(length - offset, this.buffer.remaining() / 8);
+                this.buffer.asDoubleBuffer().get(values, offset, count);
+                this.buffer.position(this.buffer.position() + count * 8);
+                offset += count;
+            }
+        }
+
+        private void ensureRemaining(final int bytes) throws IOException {
+            if (this.buffer.remaining() >= bytes) {
+                return;
+            }
+            this.buffer.compact();
+            while (this.buffer.position() < bytes) {
+                if (this.channel.read(this.buffer) < 0) {
+                    throw new IOException("Unexpected end of spill file");
+                }
+            }
+            this.buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Appends values to a spill file
+     */
+    public static final class ColumnWriter implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        private ColumnWriter(final FileChannel channel, final int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @param file - file to create or overwrite
+         * @return
+         * @throws IOException
+         */
+        public static ColumnWriter create(final Path file) throws IOException {
+            return create(file, BUFFER_SIZE);
+        }
+
+        /**
+         * @param file       - file to create or overwrite
+         * @param bufferSize - size of the direct buffer, see getBufferSize
+         * @return
+         * @throws IOException
+         */
+        public static ColumnWriter create(final Path file, final int bufferSize) throws IOException {
+            return new ColumnWriter(FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), bufferSize);
+        }
+
+        public void putInt(final int value) throws IOException {
+            ensureRemaining(4);
+            this.buffer.putInt(value);
+        }
+
+        public void putDouble(final double value) throws IOException {
+            ensureRemaining(8);
+            this.buffer.putDouble(value);
+        }
+
+        /**
+         * @param values
+         * @param length - number of values to append from the start of the array
+         * @throws IOException
+         */
+        public void putInts(final int[] values, final int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                ensureRemaining(4);
+                final int count = Math.min(length - offset, this.buffer.remaining() / 4);
+                this.buffer.asIntBuffer().put(values, offset, count);
+                this.buffer.position(this.buffer.position() + count * 4);
+                offset += count;
+            }
+        }
+
+        private void ensureRemaining(final int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package decisionTree;
+
+import com.google.common.collect.Lists;
+import driver.DataMatrix;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decision tree flattened into arrays indexed by node, for allocation free classification of feature vectors.
+ * Nodes are laid out breadth first from the root at index 0, the two children of a continuous node are adjacent.
+ * <p>
+ * For a continuous node, next holds the index of the child taken by values below or equal to the threshold,
+ * the following node is taken by greater values and NaN. For a discrete node, next holds the offset of
+ * the node's child table, which maps every code of the feature's dictionary to a child or -1.
+ * For a leaf, next holds the code of the label.
+ * <p>
+ * The model is saved as a versioned little endian file: a header with magic number, version, node count,
+ * child table size, feature count and target feature; the name and dictionary of every feature and
+ * the labels, strings written as their UTF-8 length followed by the bytes; then, starting at a multiple of 8 bytes,
+ * the thresholds, features, next indices, child table and node kinds. Loading maps the file and bulk copies
+ * the node arrays, no object is created per node.
+ */
+public final class CompiledTree implements FeatureClassifier {
+
+    static final byte LEAF = 0;
+    static final byte CONTINUOUS = 1;
+    static final byte DISCRETE = 2;
+
+    public static final String EXTENSION = ".j48m";
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final int MAGIC = 0x4A34384D; // J48M
+    private static final int VERSION = 1;
+
+    private final byte[] kind;
+    private final int[] feature;
+    private final double[] threshold;
+    private final int[] next;
+    private final int[] childTable;
+
+    // schema of the feature vectors
+    private final String[] featureNames;
+    private final String[][] dictionaries; // null for continuous features
+    private final int targetFeature;
+    private final String[] labels;
+
+    CompiledTree(final byte[] kind, final int[] feature, final double[] threshold, final int[] next, final int[] childTable,
+                 final String[] featureNames, final String[][] dictionaries, final int targetFeature, final String[] labels) {
+        this.kind = kind;
+        this.feature = feature;
+        this.threshold = threshold;
+        this.next = next;
+        this.childTable = childTable;
+        this.featureNames = featureNames;
+        this.dictionaries = dictionaries;
+        this.targetFeature = targetFeature;
+        this.labels = labels;
+    }
+
+    /**
+     * Flattens a tree trained on the given data matrix
+     *
+     * @param tree
+     * @param data - data matrix the tree was trained on, giving the feature order, dictionaries and labels
+     * @return
+     */
+    public static CompiledTree compile(final Tree tree, final DataMatrix data) {
+        final List<Tree> nodes = Lists.newArrayList();
+        final ArrayDeque<Tree> queue = new ArrayDeque<>();
+        queue.add(tree);
+        // breadth first numbering, children are numbered when their parent is visited so siblings stay adjacent
+        while (!queue.isEmpty()) {
+            final Tree node = queue.poll();
+            nodes.add(node);
+            if (node.isLeaf()) {
+                continue;
+            }
+            if (node.getAttribute().isContinuous()) {
+                queue.addAll(node.getChildrenContinuous());
+            } else {
+                queue.addAll(node.getChildrenDiscrete().values());
+            }
+        }
+
+        final int numberOfNodes = nodes.size();
+        final byte[] kind = new byte[numberOfNodes];
+        final int[] feature = new int[numberOfNodes];
+        final double[] threshold = new double[numberOfNodes];
+        final int[] next = new int[numberOfNodes];
+        int childTableSize = 0;
+        for (final Tree node : nodes) {
+            if (!node.isLeaf() && !node.getAttribute().isContinuous()) {
+                childTableSize += data.getDictionary(data.getColumnIndex(node.getNodeName())).length;
+            }
+        }
+        final int[] childTable = new int[childTableSize];
+        Arrays.fill(childTable, -1);
+        int childTableOffset = 0;
+        int firstChild = 1;
+        for (int index = 0; index < numberOfNodes; index++) {
+            final Tree node = nodes.get(index);
+            if (node.isLeaf()) {
+                kind[index] = LEAF;
+                feature[index] = -1;
+                next[index] = Arrays.binarySearch(data.getLabelDictionary(), node.getNodeName());
+                continue;
+            }
+            final int column = data.getColumnIndex(node.getNodeName());
+            feature[index] = column;
+            if (node.getAttribute().isContinuous()) {
+                final List<Tree> children = node.getChildrenContinuous();
+                kind[index] = CONTINUOUS;
+                threshold[index] = node.getThreshold();
+                next[index] = firstChild;
+                firstChild += children.size();
+                if (children.size() != 2) {
+                    throw new IllegalArgumentException("Continuous node " + node.getNodeName() + " has " + children.size() + " children");
+                }
+            } else {
+                final String[] dictionary = data.getDictionary(column);
+                // children were queued in the iteration order of the map
+                for (final String value : node.getChildrenDiscrete().keySet()) {
+                    childTable[childTableOffset + Arrays.binarySearch(dictionary, value)] = firstChild++;
+                }
+                kind[index] = DISCRETE;
+                next[index] = childTableOffset;
+                childTableOffset += dictionary.length;
+            }
+        }
+
+        final int numberOfColumns = data.getNumberOfColumns();
+        final String[] featureNames = new String[numberOfColumns];
+        final String[][] dictionaries = new String[numberOfColumns][];
+        for (int column = 0; column < numberOfColumns; column++) {
+            featureNames[column] = data.getAttribute(column).getName();
+            if (column != data.getTargetColumn() && !data.isContinuous(column)) {
+                dictionaries[column] = data.getDictionary(column);
+            }
+        }
+        return new CompiledTree(kind, feature, threshold, next, childTable, featureNames, dictionaries, data.getTargetColumn(), data.getLabelDictionary());
+    }
+
+    /**
+     * @param filePath - file to create or overwrite, by convention with the EXTENSION
+     * @throws IOException
+     */
+    public void save(final String filePath) throws IOException {
+        final List<byte[]> strings = Lists.newArrayList();
+        for (int feature = 0; feature < this.featureNames.length; feature++) {
+            strings.add(this.featureNames[feature].getBytes(StandardCharsets.UTF_8));
+            if (this.dictionaries[feature] != null) {
+                for (final String value : this.dictionaries[feature]) {
+                    strings.add(value.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        for (final String label : this.labels) {
+            strings.add(label.getBytes(StandardCharsets.UTF_8));
+        }
+        // counts, a flag per feature, the size of each dictionary and of the labels, then the strings
+        long headerSize = 6 * 4 + this.featureNames.length + 4;
+        for (final String[] dictionary : this.dictionaries) {
+            if (dictionary != null) {
+                headerSize += 4;
+            }
+        }
+        for (final byte[] string : strings) {
+            headerSize += 4 + string.length;
+        }
+        headerSize = (headerSize + 7) & ~7L;
+        final int numberOfNodes = this.kind.length;
+        final long size = headerSize + numberOfNodes * (8L + 4 + 4 + 1) + this.childTable.length * 4L;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Model of " + numberOfNodes + " nodes is too large to save");
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(numberOfNodes).putInt(this.childTable.length)
+                .putInt(this.featureNames.length).putInt(this.targetFeature);
+        int string = 0;
+        for (int feature = 0; feature < this.featureNames.length; feature++) {
+            putString(buffer, strings.get(string++));
+            buffer.put((byte) (this.dictionaries[feature] != null ? 1 : 0));
+            if (this.dictionaries[feature] != null) {
+                buffer.putInt(this.dictionaries[feature].length);
+                for (int code = 0; code < this.dictionaries[feature].length; code++) {
+                    putString(buffer, strings.get(string++));
+                }
+            }
+        }
+        buffer.putInt(this.labels.length);
+        for (int code = 0; code < this.labels.length; code++) {
+            putString(buffer, strings.get(string++));
+        }
+        buffer.position((int) headerSize);
+        buffer.asDoubleBuffer().put(this.threshold);
+        buffer.position(buffer.position() + numberOfNodes * 8);
+        buffer.asIntBuffer().put(this.feature);
+        buffer.position(buffer.position() + numberOfNodes * 4);
+        buffer.asIntBuffer().put(this.next);
+        buffer.position(buffer.position() + numberOfNodes * 4);
+        buffer.asIntBuffer().put(this.childTable);
+        buffer.position(buffer.position() + this.childTable.length * 4);
+        buffer.put(this.kind);
+        buffer.flip();
+        try (final FileChannel channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * @param filePath - model written by save
+     * @return
+     * @throws IOException
+     */
+    public static CompiledTree load(final String filePath) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(filePath + " is not a model");
+            }
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 24 || buffer.getInt() != MAGIC) {
+                throw new IOException(filePath + " is not a model");
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of model " + filePath);
+            }
+            final int numberOfNodes = buffer.getInt();
+            final int childTableSize = buffer.getInt();
+            final int numberOfFeatures = buffer.getInt();
+            final int targetFeature = buffer.getInt();
+            final String[] featureNames = new String[numberOfFeatures];
+            final String[][] dictionaries = new String[numberOfFeatures][];
+            for (int feature = 0; feature < numberOfFeatures; feature++) {
+                featureNames[feature] = getString(buffer);
+                if (buffer.get() != 0) {
+                    dictionaries[feature] = new String[buffer.getInt()];
+                    for (int code = 0; code < dictionaries[feature].length; code++) {
+                        dictionaries[feature][code] = getString(buffer);
+                    }
+                }
+            }
+            final String[] labels = new String[buffer.getInt()];
+            for (int code = 0; code < labels.length; code++) {
+                labels[code] = getString(buffer);
+            }
+            buffer.position((buffer.position() + 7) & ~7);
+
+            final byte[] kind = new byte[numberOfNodes];
+            final int[] feature = new int[numberOfNodes];
+            final double[] threshold = new double[numberOfNodes];
+            final int[] next = new int[numberOfNodes];
+            final int[] childTable = new int[childTableSize];
+            if (buffer.remaining() < numberOfNodes * (8L + 4 + 4 + 1) + childTableSize * 4L) {
+                throw new IOException("Model " + filePath + " is truncated");
+            }
+            buffer.asDoubleBuffer().get(threshold);
+            buffer.position(buffer.position() + numberOfNodes * 8);
+            buffer.asIntBuffer().get(feature);
+            buffer.position(buffer.position() + numberOfNodes * 4);
+            buffer.asIntBuffer().get(next);
+            buffer.position(buffer.position() + numberOfNodes * 4);
+            buffer.asIntBuffer().get(childTable);
+            buffer.position(buffer.position() + childTableSize * 4);
+            buffer.get(kind);
+            return new CompiledTree(kind, feature, threshold, next, childTable, featureNames, dictionaries, targetFeature, labels);
+        }
+    }
+
+    private static void putString(final ByteBuffer buffer, final byte[] string) {
+        buffer.putInt(string.length);
+        buffer.put(string);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int classify(final double[] features) {
+        int node = 0;
+        while (true) {
+            switch (this.kind[node]) {
+                case CONTINUOUS:
+                    // NaN fails the comparison and goes right
+                    node = features[this.feature[node]] <= this.threshold[node] ?
+                            this.next[node] :
+                            this.next[node] + 1;
+                    break;
+                case DISCRETE:
+                    final double value = features[this.feature[node]];
+                    final int size = this.dictionaries[this.feature[node]].length;
+                    // NaN fails both comparisons
+                    if (!(value >= 0 && value < size)) {
+                        return -1;
+                    }
+                    node = this.childTable[this.next[node] + (int) value];
+                    if (node < 0) {
+                        // value not seen in the node's training subset
+                        return -1;
+                    }
+                    break;
+                default:
+                    return this.next[node];
+            }
+        }
+    }
+
+    /**
+     * Classifies blocks of rows level by level: every pass over a block moves each of its rows one node down,
+     * rows reaching a leaf leave the block. The nodes of a level are visited by many rows in a row,
+     * so the node arrays stay in cache and the loads of independent rows overlap.
+     */
+    @Override
+    public void classify(final double[][] columns, final int from, final int to, final int[] predictions) {
+        classify(columns, from, to, predictions, 0);
+    }
+
+    /**
+     * Classifies a block of rows into an array holding the predictions of some rows only, such as of the block itself
+     *
+     * @param columns
+     * @param from
+     * @param to
+     * @param predictions - receives the label code of each row at the row's index less the offset
+     * @param offset      - row whose prediction is stored first
+     */
+    public void classify(final double[][] columns, final int from, final int to, final int[] predictions, final int offset) {
+        final int[] rows = new int[BLOCK_SIZE];
+        final int[] nodes = new int[BLOCK_SIZE];
+        for (int blockStart = from; blockStart < to; blockStart += BLOCK_SIZE) {
+            int active = 0;
+            for (int row = blockStart; row < Math.min(to, blockStart + BLOCK_SIZE); row++) {
+                if (this.kind[0] == LEAF) {
+                    predictions[row - offset] = this.next[0];
+                    continue;
+                }
+                rows[active] = row;
+                nodes[active] = 0;
+                active++;
+            }
+            while (active > 0) {
+                int remaining = 0;
+                for (int i = 0; i < active; i++) {
+                    final int row = rows[i];
+                    int node = nodes[i];
+                    if (this.kind[node] == CONTINUOUS) {
+                        node = columns[this.feature[node]][row] <= this.threshold[node] ?
+                                this.next[node] :
+                                this.next[node] + 1;
+                    } else {
+                        final double value = columns[this.feature[node]][row];
+                        node = value >= 0 && value < this.dictionaries[this.feature[node]].length ?
+                                this.childTable[this.next[node] + (int) value] :
+                                -1;
+                    }
+                    if (node < 0) {
+                        predictions[row - offset] = -1;
+                    } else if (this.kind[node] == LEAF) {
+                        predictions[row - offset] = this.next[node];
+                    } else {
+                        rows[remaining] = row;
+                        nodes[remaining] = node;
+                        remaining++;
+                    }
+                }
+                active = remaining;
+            }
+        }
+    }
+
+    /**
+     * Gathers rows of a data matrix into feature columns. Discrete values are translated by value,
+     * so the data matrix may come from another file with the same attributes.
+     *
+     * @param data
+     * @param rows
+     * @return - one column per feature holding the given rows in order, null for the target
+     */
+    public double[][] getFeatureColumns(final DataMatrix data, final int[] rows) {
+        final double[][] columns = new double[this.featureNames.length][];
+        for (int feature = 0; feature < this.featureNames.length; feature++) {
+            if (feature == this.targetFeature) {
+                continue;
+            }
+            final int column = data.getColumnIndex(this.featureNames[feature]);
+            final double[] values = new double[rows.length];
+            if (column < 0) {
+                Arrays.fill(values, Double.NaN);
+            } else if (data.isContinuous(column)) {
+                final double[] numbers = data.getContinuousColumn(column);
+                for (int i = 0; i < rows.length; i++) {
+                    values[i] = this.dictionaries[feature] == null ?
+                            numbers[rows[i]] :
+                            getCode(feature, DataMatrix.formatNumber(numbers[rows[i]]));
+                }
+            } else {
+                // translate every code of the data matrix once
+                final String[] dictionary = data.getDictionary(column);
+                final double[] recode = new double[dictionary.length];
+                for (int code = 0; code < dictionary.length; code++) {
+                    recode[code] = this.dictionaries[feature] == null ? Double.NaN : getCode(feature, dictionary[code]);
+                }
+                final int[] codes = data.getDiscreteColumn(column);
+                for (int i = 0; i < rows.length; i++) {
+                    values[i] = recode[codes[rows[i]]];
+                }
+            }
+            columns[feature] = values;
+        }
+        return columns;
+    }
+
+    /**
+     * Fills the feature vector of a row. Discrete values are looked up by value,
+     * so the data matrix may come from another file with the same attributes.
+     *
+     * @param data
+     * @param row
+     * @param features - vector to fill, at least as long as the number of features
+     * @return - the filled vector
+     */
+    public double[] getFeatures(final DataMatrix data, final int row, final double[] features) {
+        for (int feature = 0; feature < this.featureNames.length; feature++) {
+            final int column = data.getColumnIndex(this.featureNames[feature]);
+            if (column < 0) {
+                features[feature] = Double.NaN;
+            } else if (this.dictionaries[feature] == null) {
+                // continuous feature, or the target which is not used
+                features[feature] = data.isContinuous(column) ? data.getContinuousColumn(column)[row] : Double.NaN;
+            } else {
+                features[feature] = data.isContinuous(column) ?
+                        getCode(feature, DataMatrix.formatNumber(data.getContinuousColumn(column)[row])) :
+                        getCode(feature, data.getDictionary(column)[data.getDiscreteColumn(column)[row]]);
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Fills the feature vector of a record, values are looked up by the names of the features
+     *
+     * @param instance
+     * @param features - vector to fill, at least as long as the number of features
+     * @return - the filled vector
+     */
+    public double[] getFeatures(final CSVRecord instance, final double[] features) {
+        for (int feature = 0; feature < this.featureNames.length; feature++) {
+            final String value = instance.isSet(this.featureNames[feature]) ? instance.get(this.featureNames[feature]) : "";
+            if (this.dictionaries[feature] != null) {
+                features[feature] = getCode(feature, value);
+            } else {
+                features[feature] = DataMatrix.isNumber(value) ? Double.parseDouble(value) : Double.NaN;
+            }
+        }
+        return features;
+    }
+
+    /**
+     * @param feature
+     * @param value
+     * @return - code of a value of a discrete feature, -1 if the value is unknown
+     */
+    public int getCode(final int feature, final String value) {
+        final int code = Arrays.binarySearch(this.dictionaries[feature], value);
+        return code < 0 ? -1 : code;
+    }
+
+    @Override
+    public String getLabel(final int code) {
+        return code < 0 ? " " : this.labels[code];
+    }
+
+    public int getNumberOfLabels() {
+        return this.labels.length;
+    }
+
+    public int getNumberOfFeatures() {
+        return this.featureNames.length;
+    }
+
+    public String getFeatureName(final int feature) {
+        return this.featureNames[feature];
+    }
+
+    /**
+     * @param feature
+     * @return - values of a discrete feature in code order, null for continuous features and the target
+     */
+    public String[] getDictionary(final int feature) {
+        return this.dictionaries[feature];
+    }
+
+    public int getNumberOfNodes() {
+        return this.kind.length;
+    }
+}
@@ -0,0 +1,39 @@
+package decisionTree;
+
+/**
+ * Classifies feature vectors given in the column order of the data matrix a model was trained on.
+ * Continuous features hold their value, NaN when missing. Discrete features hold the code of the value
+ * in the dictionary of their column, -1 or NaN when the value is unknown. The target column is ignored.
+ */
+public interface FeatureClassifier {
+
+    /**
+     * @param features
+     * @return - code of the predicted label, -1 when the model has no prediction for an unknown value
+     */
+    int classify(double[] features);
+
+    /**
+     * Classifies a block of rows given column by column
+     *
+     * @param columns     - values of each feature in the same form as feature vectors, null for features not used
+     * @param from        - first row to classify
+     * @param to          - row following the last row to classify
+     * @param predictions - receives the label code of each row at the row's index
+     */
+    default void classify(final double[][] columns, final int from, final int to, final int[] predictions) {
+        final double[] features = new double[columns.length];
+        for (int row = from; row < to; row++) {
+            for (int feature = 0; feature < columns.length; feature++) {
+                features[feature] = columns[feature] == null ? Double.NaN : columns[feature][row];
+            }
+            predictions[row] = classify(features);
+        }
+    }
+
+    /**
+     * @param code
+     * @return - label of the code, " " for -1 as returned by Tree.search for unknown values
+     */
+    String getLabel(int code);
+}
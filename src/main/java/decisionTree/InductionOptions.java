@@ -0,0 +1,163 @@
+package decisionTree;
+
+import driver.ForkJoinTasks;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Settings that control how the TreeConstructor grows a tree.
+ * The defaults reproduce the plain recursive induction.
+ */
+public class InductionOptions {
+
+    private boolean presorted;
+    private boolean parallelAttributes;
+    private boolean parallelSubtrees;
+    private ForkJoinPool executor;
+    private int sequentialThreshold = 4096;
+    private int featuresPerNode;
+    private int histogramBins;
+    private boolean verbose;
+    private volatile boolean cancelled;
+
+    /**
+     * In presorted mode every continuous attribute is sorted once at the root.
+     * Child nodes inherit their sorted rows by stable partitioning of the parent's,
+     * so no node below the root sorts again at the cost of keeping a sorted copy of the rows per continuous attribute.
+     *
+     * @return
+     */
+    public boolean isPresorted() {
+        return presorted;
+    }
+
+    public void setPresorted(boolean presorted) {
+        this.presorted = presorted;
+    }
+
+    /**
+     * When set, the gains of the attributes at a node are calculated concurrently.
+     * The winner is still chosen in column order so the tree does not depend on scheduling.
+     *
+     * @return
+     */
+    public boolean isParallelAttributes() {
+        return parallelAttributes;
+    }
+
+    public void setParallelAttributes(boolean parallelAttributes) {
+        this.parallelAttributes = parallelAttributes;
+    }
+
+    /**
+     * When set, the children of a node are grown as fork/join tasks.
+     * Nodes smaller than the sequential threshold grow their subtrees on the current thread.
+     *
+     * @return
+     */
+    public boolean isParallelSubtrees() {
+        return parallelSubtrees;
+    }
+
+    public void setParallelSubtrees(boolean parallelSubtrees) {
+        this.parallelSubtrees = parallelSubtrees;
+    }
+
+    /**
+     * @return - pool running the parallel work, the common pool unless one was supplied
+     */
+    public ForkJoinPool getExecutor() {
+        return executor != null ? executor : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * The executor has to be a fork/join pool: induction may itself run as a task of the pool, as the trees of
+     * a forest do, and a worker waiting on the tasks it submits runs them itself rather than blocking a thread
+     * the tasks are queued behind.
+     *
+     * @param executor
+     */
+    public void setExecutor(ForkJoinPool executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the tasks in parallel and waits for all of them. Called from a fork/join worker the tasks are forked
+     * into the worker's own pool, otherwise they are submitted to the executor.
+     *
+     * @param tasks
+     * @return - result of each task in order
+     */
+    public <T> List<T> invokeAll(final List<? extends Callable<T>> tasks) {
+        return ForkJoinTasks.invokeAll(getExecutor(), tasks);
+    }
+
+    /**
+     * @return - number of rows below which a node is processed on the calling thread
+     */
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+
+    public void setSequentialThreshold(int sequentialThreshold) {
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Number of attributes drawn at random at every node to choose the split from, as in a random forest.
+     * 0, the default, considers all attributes.
+     *
+     * @return
+     */
+    public int getFeaturesPerNode() {
+        return featuresPerNode;
+    }
+
+    public void setFeaturesPerNode(int featuresPerNode) {
+        this.featuresPerNode = featuresPerNode;
+    }
+
+    /**
+     * In histogram mode, when above 0, every continuous attribute is quantized once at the root into at most this many bins
+     * holding about equal numbers of rows. Nodes count the labels in each bin and choose thresholds among the bin edges only,
+     * so the cost of a node no longer depends on the number of distinct values, at the price of coarser thresholds.
+     * A child's histograms are those of its parent less those of its siblings, so the biggest child is never scanned.
+     * Histogram mode takes the place of presorted mode.
+     *
+     * @return
+     */
+    public int getHistogramBins() {
+        return histogramBins;
+    }
+
+    public void setHistogramBins(int histogramBins) {
+        this.histogramBins = histogramBins;
+    }
+
+    /**
+     * When set, every split and leaf is printed to the standard output as the tree grows
+     *
+     * @return
+     */
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Asks every induction using these options to stop. Induction checks the flag as it grows each node and
+     * evaluates each attribute, and gives up with a CancellationException.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
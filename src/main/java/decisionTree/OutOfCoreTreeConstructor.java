@@ -0,0 +1,448 @@
+package decisionTree;
+
+import com.google.common.collect.Lists;
+import dataReader.SpilledData;
+import driver.Attribute;
+import driver.Gain;
+import driver.Pruning;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Grows a tree on a data set spilled to disk, for data sets larger than the heap. Memory depends on the number
+ * of columns, bins and open nodes, not on the number of rows.
+ * <p>
+ * Continuous attributes are quantized once into quantile bins whose edges come from a reservoir sample of each column,
+ * and the bin of every row is spilled next to the columns. The tree then grows breadth first, one sequential pass over
+ * the spilled columns per level: every row is moved to the child of the split decided for its node in the previous pass
+ * and counted into the histograms of its new node. Splits are chosen among the bin edges as in histogram mode,
+ * when a level has more open nodes than the histograms fit into it takes several passes.
+ */
+public class OutOfCoreTreeConstructor {
+
+    // bins per continuous attribute when the options do not set them
+    private static final int DEFAULT_BINS = 256;
+    // rows read from each column at a time
+    private static final int BLOCK = 1 << 16;
+    // cells of the histograms accumulated in one pass, an eighth of the heap up to 64 MB, at least one node is always taken
+    private static final long HISTOGRAM_BUDGET = Math.min(1 << 24, Runtime.getRuntime().maxMemory() / 32);
+    // node of rows which reached a leaf
+    private static final int CLOSED = -1;
+
+    private final SpilledData data;
+    private final InductionOptions options;
+    private final int numberOfLabels;
+    private final Attribute target;
+    // upper edges of the bins of each continuous column, null for discrete columns and the target
+    private final double[][] edges;
+    // cells of a histogram per label, the number of bins or dictionary codes of each attribute column
+    private final int[] numberOfCells;
+    private final List<Node> nodes = Lists.newArrayList();
+    private final ArrayDeque<Node> open = new ArrayDeque<>();
+    private final Tree root;
+
+    /**
+     * @param data    - spilled data set
+     * @param options - induction settings, the histogram bins and the cancellation are used
+     * @throws IOException
+     */
+    public OutOfCoreTreeConstructor(final SpilledData data, final InductionOptions options) throws IOException {
+        if (data.getNumberOfRows() == 0) {
+            throw new IllegalArgumentException("No rows to train on");
+        }
+        this.data = data;
+        this.options = options;
+        this.numberOfLabels = data.getLabelDictionary().length;
+        this.target = data.getAttribute(data.getTargetColumn());
+        this.edges = new double[data.getNumberOfColumns()][];
+        this.numberOfCells = new int[data.getNumberOfColumns()];
+        final boolean[] attributes = new boolean[data.getNumberOfColumns()];
+        final int maximumBins = options.getHistogramBins() > 0 ? options.getHistogramBins() : DEFAULT_BINS;
+        try {
+            for (int column = 0; column < data.getNumberOfColumns(); column++) {
+                if (column == data.getTargetColumn()) {
+                    continue;
+                }
+                attributes[column] = true;
+                if (data.isContinuous(column)) {
+                    checkCancelled();
+                    this.edges[column] = getEdges(column, maximumBins);
+                    spillBins(column);
+                    // the bin of missing values follows the last one
+                    this.numberOfCells[column] = this.edges[column].length + 1;
+                } else {
+                    this.numberOfCells[column] = data.getDictionary(column).length;
+                }
+            }
+            final Node root = createNode(countLabels(), attributes);
+            final int[] nodeOfRow = new int[BLOCK];
+            try (final SpilledData.ColumnWriter writer = SpilledData.ColumnWriter.create(getNodeFile())) {
+                // every row starts at the root
+                for (int row = 0; row < data.getNumberOfRows(); row += BLOCK) {
+                    writer.putInts(nodeOfRow, Math.min(BLOCK, data.getNumberOfRows() - row));
+                }
+            }
+            while (!this.open.isEmpty()) {
+                checkCancelled();
+                pass();
+            }
+            this.root = link(root);
+        } finally {
+            Files.deleteIfExists(getNodeFile());
+            Files.deleteIfExists(this.data.getWorkFile("nodes.next"));
+            for (int column = 0; column < this.edges.length; column++) {
+                if (this.edges[column] != null) {
+                    Files.deleteIfExists(getBinFile(column));
+                }
+            }
+        }
+    }
+
+    /**
+     * Places the bin edges of a continuous column at the quantiles of a uniform sample of its values
+     *
+     * @param column
+     * @param maximumBins
+     * @return
+     * @throws IOException
+     */
+    private double[] getEdges(final int column, final int maximumBins) throws IOException {
+        final QuantileBins.Sketch sketch = new QuantileBins.Sketch(Math.min(QuantileBins.SKETCH_SIZE, this.data.getNumberOfRows()), column);
+        try (final SpilledData.ColumnReader reader = this.data.openColumn(column)) {
+            final double[] values = new double[BLOCK];
+            for (int row = 0; row < this.data.getNumberOfRows(); row += BLOCK) {
+                final int length = Math.min(BLOCK, this.data.getNumberOfRows() - row);
+                reader.getDoubles(values, length);
+                for (int i = 0; i < length; i++) {
+                    sketch.add(values[i]);
+                }
+            }
+        }
+        return sketch.getEdges(maximumBins);
+    }
+
+    /**
+     * Writes the bin of every row of a continuous column to a work file
+     *
+     * @param column
+     * @throws IOException
+     */
+    private void spillBins(final int column) throws IOException {
+        try (final SpilledData.ColumnReader reader = this.data.openColumn(column);
+             final SpilledData.ColumnWriter writer = SpilledData.ColumnWriter.create(getBinFile(column))) {
+            final double[] values = new double[BLOCK];
+            final int[] bins = new int[BLOCK];
+            for (int row = 0; row < this.data.getNumberOfRows(); row += BLOCK) {
+                final int length = Math.min(BLOCK, this.data.getNumberOfRows() - row);
+                reader.getDoubles(values, length);
+                for (int i = 0; i < length; i++) {
+                    bins[i] = QuantileBins.getBin(this.edges[column], values[i]);
+                }
+                writer.putInts(bins, length);
+            }
+        }
+    }
+
+    /**
+     * @return - occurrences of each label code in the data set
+     * @throws IOException
+     */
+    private int[] countLabels() throws IOException {
+        final int[] occurrences = new int[this.numberOfLabels];
+        try (final SpilledData.ColumnReader reader = this.data.openColumn(this.data.getTargetColumn())) {
+            final int[] labels = new int[BLOCK];
+            for (int row = 0; row < this.data.getNumberOfRows(); row += BLOCK) {
+                final int length = Math.min(BLOCK, this.data.getNumberOfRows() - row);
+                reader.getInts(labels, length);
+                for (int i = 0; i < length; i++) {
+                    occurrences[labels[i]]++;
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * One sequential pass over the spilled data. Rows follow the splits decided since the previous pass,
+     * then the rows of the open nodes taken for this pass are counted into their histograms and the nodes are decided.
+     *
+     * @throws IOException
+     */
+    private void pass() throws IOException {
+        // open nodes taken in breadth first order while their histograms fit into the budget
+        final List<Node> batch = Lists.newArrayList();
+        long cells = 0;
+        while (!this.open.isEmpty() && (batch.isEmpty() || cells + getHistogramCells(this.open.peek()) <= HISTOGRAM_BUDGET)) {
+            final Node node = this.open.poll();
+            cells += getHistogramCells(node);
+            node.histograms = new int[this.numberOfCells.length][];
+            for (int column = 0; column < this.numberOfCells.length; column++) {
+                if (node.attributes[column]) {
+                    node.histograms[column] = new int[this.numberOfCells[column] * this.numberOfLabels];
+                }
+            }
+            batch.add(node);
+        }
+
+        final int numberOfColumns = this.data.getNumberOfColumns();
+        final SpilledData.ColumnReader[] readers = new SpilledData.ColumnReader[numberOfColumns];
+        final Path nextNodeFile = this.data.getWorkFile("nodes.next");
+        // every column is read along with the node files, so they share the budget of the buffers
+        final int bufferSize = SpilledData.getBufferSize(numberOfColumns + 2);
+        try (final SpilledData.ColumnReader nodeReader = SpilledData.ColumnReader.open(getNodeFile(), bufferSize);
+             final SpilledData.ColumnWriter nodeWriter = SpilledData.ColumnWriter.create(nextNodeFile, bufferSize)) {
+            for (int column = 0; column < numberOfColumns; column++) {
+                readers[column] = this.edges[column] != null ?
+                        SpilledData.ColumnReader.open(getBinFile(column), bufferSize) : this.data.openColumn(column, bufferSize);
+            }
+            // histograms of the nodes in the batch indexed by node
+            final int[][][] histograms = new int[this.nodes.size()][][];
+            for (final Node node : batch) {
+                histograms[node.id] = node.histograms;
+            }
+            final int[] nodeOfRow = new int[BLOCK];
+            final int[][] block = new int[numberOfColumns][BLOCK];
+            for (int row = 0; row < this.data.getNumberOfRows(); row += BLOCK) {
+                checkCancelled();
+                final int length = Math.min(BLOCK, this.data.getNumberOfRows() - row);
+                nodeReader.getInts(nodeOfRow, length);
+                for (int column = 0; column < numberOfColumns; column++) {
+                    readers[column].getInts(block[column], length);
+                }
+                final int[] labels = block[this.data.getTargetColumn()];
+                for (int i = 0; i < length; i++) {
+                    nodeOfRow[i] = route(nodeOfRow[i], block, i);
+                }
+                nodeWriter.putInts(nodeOfRow, length);
+                // column by column, so each histogram is updated from one block of values at a time
+                for (int column = 0; column < numberOfColumns; column++) {
+                    if (column == this.data.getTargetColumn()) {
+                        continue;
+                    }
+                    final int[] values = block[column];
+                    for (int i = 0; i < length; i++) {
+                        if (nodeOfRow[i] == CLOSED || histograms[nodeOfRow[i]] == null) {
+                            continue;
+                        }
+                        final int[] histogram = histograms[nodeOfRow[i]][column];
+                        if (histogram != null) {
+                            histogram[values[i] * this.numberOfLabels + labels[i]]++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (final SpilledData.ColumnReader reader : readers) {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+        Files.move(nextNodeFile, getNodeFile(), StandardCopyOption.REPLACE_EXISTING);
+
+        for (final Node node : batch) {
+            decide(node);
+            // only the routing and the tree of a decided node are kept
+            node.histograms = null;
+            node.occurrences = null;
+            node.attributes = null;
+        }
+    }
+
+    /**
+     * @param node
+     * @param block - values of the current rows per column, bins for continuous attributes
+     * @param i     - position of the row in the block
+     * @return - open node the row belongs to after the splits decided so far, CLOSED once it reached a leaf
+     */
+    private int route(int node, final int[][] block, final int i) {
+        while (node != CLOSED) {
+            final Node current = this.nodes.get(node);
+            if (current.tree == null) {
+                return node;
+            }
+            node = current.childOfValue == null ? CLOSED : current.childOfValue[block[current.gain.getColumn()][i]];
+        }
+        return CLOSED;
+    }
+
+    /**
+     * Chooses the split of a node from its histograms as the TreeConstructor does in histogram mode and
+     * creates its children, pure children become leaves without another pass
+     *
+     * @param node
+     */
+    private void decide(final Node node) {
+        final double targetEntropy = TreeConstructor.calculateEntropy(node.occurrences, TreeConstructor.sum(node.occurrences));
+        // attributes are visited in column order and the last of equal gains wins
+        Gain maximumGain = null;
+        for (int column = 0; column < node.attributes.length; column++) {
+            if (!node.attributes[column]) {
+                continue;
+            }
+            final Gain gain = this.edges[column] != null ?
+                    TreeConstructor.getHistogramGain(this.data.getAttribute(column), column, this.edges[column], node.histograms[column],
+                            node.occurrences, targetEntropy) :
+                    TreeConstructor.getDiscreteGain(this.data.getAttribute(column), column, toSubsets(node.histograms[column]), targetEntropy);
+            if (gain != null && (maximumGain == null || gain.getGain() >= maximumGain.getGain())) {
+                maximumGain = gain;
+            }
+        }
+        if (maximumGain == null) {
+            // no attributes left to split on
+            setLeaf(node, TreeConstructor.getMostOccurringLabel(node.occurrences));
+            return;
+        }
+        final int column = maximumGain.getColumn();
+        if (this.edges[column] == null) {
+            final boolean[] reducedAttributes = node.attributes.clone();
+            reducedAttributes[column] = false;
+            final int[][] subsets = maximumGain.getOccurrencesOfLabelsInSubsets();
+            node.childOfValue = new int[subsets.length];
+            for (int value = 0; value < subsets.length; value++) {
+                node.childOfValue[value] = TreeConstructor.sum(subsets[value]) > 0 ?
+                        createNode(subsets[value], reducedAttributes).id :
+                        CLOSED;
+            }
+        } else if (Pruning.getSplitCriterion(maximumGain)) {
+            // bins up to the one of the threshold go left, the bins above and the bin of missing values right
+            final int left = createNode(maximumGain.getLeftOccurrences(), node.attributes).id;
+            final int right = createNode(maximumGain.getRightOccurrences(), node.attributes).id;
+            final int thresholdBin = QuantileBins.getBin(this.edges[column], maximumGain.getThreshold());
+            node.childOfValue = new int[this.numberOfCells[column]];
+            for (int bin = 0; bin < node.childOfValue.length; bin++) {
+                node.childOfValue[bin] = bin <= thresholdBin ? left : right;
+            }
+        } else {
+            // the split does not pay for itself (pre-pruning by use of mdl principle)
+            setLeaf(node, maximumGain.getMostOccurringLabel());
+            return;
+        }
+        node.gain = maximumGain;
+        node.tree = new Tree(maximumGain);
+        if (this.options.isVerbose()) {
+            System.out.println("\nFeature: " + maximumGain.getAttributeName() + "\nGAIN: " + maximumGain.getGain() + "\nTHRESHOLD: " + maximumGain.getValue() + "\n");
+        }
+    }
+
+    /**
+     * Creates a node, which is open unless all of its rows have the same label
+     *
+     * @param occurrences - occurrences of each label code in the rows of the node
+     * @param attributes  - flags of the columns that can still be used for splitting
+     * @return
+     */
+    private Node createNode(final int[] occurrences, final boolean[] attributes) {
+        final Node node = new Node(this.nodes.size(), occurrences, attributes);
+        this.nodes.add(node);
+        if (TreeConstructor.calculateEntropy(occurrences, TreeConstructor.sum(occurrences)) > 0) {
+            this.open.add(node);
+        } else {
+            setLeaf(node, TreeConstructor.getMostOccurringLabel(occurrences));
+        }
+        return node;
+    }
+
+    private void setLeaf(final Node node, final int label) {
+        node.tree = new Tree(this.data.getLabelDictionary()[label], this.target);
+    }
+
+    /**
+     * Attaches the children of the decided nodes to their trees, in the order of the values or left before right
+     *
+     * @param node
+     * @return - tree of the node
+     */
+    private Tree link(final Node node) {
+        if (node.childOfValue == null) {
+            return node.tree;
+        }
+        final int column = node.gain.getColumn();
+        if (this.edges[column] == null) {
+            for (int value = 0; value < node.childOfValue.length; value++) {
+                if (node.childOfValue[value] != CLOSED) {
+                    node.tree.addChild(node.gain.getAttribute(), this.data.getDictionary(column)[value], link(this.nodes.get(node.childOfValue[value])));
+                }
+            }
+        } else {
+            node.tree.addChild(link(this.nodes.get(node.childOfValue[0])));
+            node.tree.addChild(link(this.nodes.get(node.childOfValue[node.childOfValue.length - 1])));
+        }
+        return node.tree;
+    }
+
+    /**
+     * @param histogram - occurrences of labels for each value code, value by value
+     * @return - occurrences of labels indexed by value code and label code
+     */
+    private int[][] toSubsets(final int[] histogram) {
+        final int[][] subsets = new int[histogram.length / this.numberOfLabels][];
+        for (int value = 0; value < subsets.length; value++) {
+            subsets[value] = Arrays.copyOfRange(histogram, value * this.numberOfLabels, (value + 1) * this.numberOfLabels);
+        }
+        return subsets;
+    }
+
+    private long getHistogramCells(final Node node) {
+        long cells = 0;
+        for (int column = 0; column < node.attributes.length; column++) {
+            if (node.attributes[column]) {
+                cells += (long) this.numberOfCells[column] * this.numberOfLabels;
+            }
+        }
+        return cells;
+    }
+
+    private Path getNodeFile() {
+        return this.data.getWorkFile("nodes");
+    }
+
+    private Path getBinFile(final int column) {
+        return this.data.getWorkFile("bins" + column);
+    }
+
+    /**
+     * Cancellation checkpoint, induction stops once the options are cancelled or the thread is interrupted
+     */
+    private void checkCancelled() {
+        if (this.options.isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Tree induction cancelled");
+        }
+    }
+
+    public Tree getDecisionTree() {
+        return this.root;
+    }
+
+    /**
+     * A node of the growing tree, open until its split is decided
+     */
+    private static final class Node {
+
+        private final int id;
+        // counts of the node and columns left to split on, until the node is decided
+        private int[] occurrences;
+        private boolean[] attributes;
+        // occurrences of labels per bin or value code of each attribute column while the node is counted in a pass
+        private int[][] histograms;
+        // split of the node, null for leaves
+        private Gain gain;
+        // child of each bin or value code of the split column, null for leaves
+        private int[] childOfValue;
+        // set once the node is decided
+        private Tree tree;
+
+        private Node(final int id, final int[] occurrences, final boolean[] attributes) {
+            this.id = id;
+            this.occurrences = occurrences;
+            this.attributes = attributes;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package decisionTree;
+
+import driver.DataMatrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Continuous attributes quantized into bins holding about equal numbers of training rows.
+ * Every bin is bounded above by the largest value it holds, so the edge of a bin is a threshold splitting
+ * the rows the same way as the bins. Missing values go to an extra bin after the last one.
+ */
+final class QuantileBins {
+
+    // values of a continuous column sampled to place the bin edges
+    static final int SKETCH_SIZE = 1 << 16;
+
+    // upper edge of each bin per column, null for discrete columns and the target
+    private final double[][] edges;
+    // bin of each row of the data matrix per column, only the training rows are set
+    private final int[][] bins;
+
+    private QuantileBins(final double[][] edges, final int[][] bins) {
+        this.edges = edges;
+        this.bins = bins;
+    }
+
+    /**
+     * Places the bin edges at the quantiles of a uniform sample of the values of the training rows, equal quantiles
+     * share a bin. Columns of up to SKETCH_SIZE values are sorted whole, so their edges are exact.
+     *
+     * @param data
+     * @param rows        - training rows
+     * @param maximumBins - number of bins per column, fewer when a column has fewer distinct values
+     * @return
+     */
+    static QuantileBins of(final DataMatrix data, final int[] rows, final int maximumBins) {
+        final double[][] edges = new double[data.getNumberOfColumns()][];
+        final int[][] bins = new int[data.getNumberOfColumns()][];
+        for (int column = 0; column < edges.length; column++) {
+            if (column == data.getTargetColumn() || !data.isContinuous(column)) {
+                continue;
+            }
+            final double[] values = data.getContinuousColumn(column);
+            final Sketch sketch = new Sketch(Math.min(SKETCH_SIZE, rows.length), column);
+            for (final int row : rows) {
+                sketch.add(values[row]);
+            }
+            edges[column] = sketch.getEdges(maximumBins);
+            final int[] columnBins = new int[data.getNumberOfRows()];
+            for (final int row : rows) {
+                columnBins[row] = getBin(edges[column], values[row]);
+            }
+            bins[column] = columnBins;
+        }
+        return new QuantileBins(edges, bins);
+    }
+
+    /**
+     * @param sorted         - values in ascending order, without missing values
+     * @param numberOfValues - number of values at the start of the array
+     * @param maximumBins
+     * @return - upper edges of at most the given number of bins at the quantiles of the values, equal quantiles share a bin
+     */
+    static double[] getEdges(final double[] sorted, final int numberOfValues, final int maximumBins) {
+        final double[] edges = new double[Math.min(maximumBins, numberOfValues)];
+        int numberOfBins = 0;
+        for (int bin = 1; bin <= maximumBins; bin++) {
+            final int quantile = (int) ((long) bin * numberOfValues / maximumBins) - 1;
+            if (quantile >= 0 && (numberOfBins == 0 || sorted[quantile] > edges[numberOfBins - 1])) {
+                edges[numberOfBins++] = sorted[quantile];
+            }
+        }
+        return Arrays.copyOf(edges, numberOfBins);
+    }
+
+    /**
+     * @param edges
+     * @param value
+     * @return - first bin whose edge is at or above the value, values above the last edge and missing values
+     * go to the bin following the last one
+     */
+    static int getBin(final double[] edges, final double value) {
+        if (Double.isNaN(value)) {
+            return edges.length;
+        }
+        final int bin = Arrays.binarySearch(edges, value);
+        return bin < 0 ? -bin - 1 : bin;
+    }
+
+    /**
+     * Uniform sample of the values of a column kept by reservoir sampling, along with their maximum
+     */
+    static final class Sketch {
+
+        private final double[] sample;
+        private final Random random;
+        private long numberOfValues;
+        private double maximum = Double.NEGATIVE_INFINITY;
+
+        /**
+         * @param size - number of values sampled, every value is kept when there are no more
+         * @param seed
+         */
+        Sketch(final int size, final long seed) {
+            this.sample = new double[size];
+            this.random = new Random(seed);
+        }
+
+        /**
+         * @param value - value of the next row, missing values are skipped
+         */
+        void add(final double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            // every value ends up in the sample with the same probability
+            if (this.numberOfValues < this.sample.length) {
+                this.sample[(int) this.numberOfValues] = value;
+            } else {
+                final long slot = (long) (this.random.nextDouble() * (this.numberOfValues + 1));
+                if (slot < this.sample.length) {
+                    this.sample[(int) slot] = value;
+                }
+            }
+            this.maximum = Math.max(this.maximum, value);
+            this.numberOfValues++;
+        }
+
+        /**
+         * @param maximumBins
+         * @return - upper edges of the bins at the quantiles of the sample, the last one at the largest value added
+         */
+        double[] getEdges(final int maximumBins) {
+            final int sampleSize = (int) Math.min(this.numberOfValues, this.sample.length);
+            Arrays.sort(this.sample, 0, sampleSize);
+            final double[] edges = QuantileBins.getEdges(this.sample, sampleSize, maximumBins);
+            // the largest value may not be in the sample, values above the last edge would be taken for missing ones
+            if (edges.length > 0) {
+                edges[edges.length - 1] = this.maximum;
+            }
+            return edges;
+        }
+    }
+
+    /**
+     * @param column
+     * @return - number of bins of a continuous column, not counting the bin of missing values
+     */
+    int getNumberOfBins(final int column) {
+        return this.edges[column].length;
+    }
+
+    /**
+     * @param column
+     * @return - largest training value in each bin of a continuous column
+     */
+    double[] getEdges(final int column) {
+        return this.edges[column];
+    }
+
+    /**
+     * @param column
+     * @return - bin of each training row of a continuous column, indexed by row
+     */
+    int[] getBins(final int column) {
+        return this.bins[column];
+    }
+
+    /**
+     * @param column
+     * @return - true for the columns that are quantized
+     */
+    boolean isBinned(final int column) {
+        return this.edges[column] != null;
+    }
+}
@@ -3,6 +3,7 @@ package decisionTree;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import driver.Attribute;
+import driver.DataMatrix;
 import driver.Gain;
 import org.apache.commons.csv.CSVRecord;
 
@@ -20,6 +21,7 @@ public class Tree implements Serializable {
     private Attribute attribute;
     private String nodeName;
     private String value;
+    private double threshold;
     private final HashMap<String, Tree> childrenDiscrete = Maps.newLinkedHashMap();
     private final List<Tree> childrenContinuous = Lists.newLinkedList();
 
@@ -43,6 +45,7 @@ public class Tree implements Serializable {
     public Tree(final Gain gain) {
         this.nodeName = gain.getAttributeName();
         this.value = gain.getValue();
+        this.threshold = gain.getThreshold();
         this.attribute = gain.getAttribute();
     }
 
@@ -77,6 +80,36 @@ public class Tree implements Serializable {
         this.childrenDiscrete.put(childName, child);
     }
 
+    boolean isLeaf() {
+        return this.attribute.isTarget();
+    }
+
+    String getNodeName() {
+        return this.nodeName;
+    }
+
+    Attribute getAttribute() {
+        return this.attribute;
+    }
+
+    double getThreshold() {
+        return this.threshold;
+    }
+
+    /**
+     * @return - children of a continuous node, below or equal to the threshold first
+     */
+    List<Tree> getChildrenContinuous() {
+        return this.childrenContinuous;
+    }
+
+    /**
+     * @return - children of a discrete node by attribute value
+     */
+    HashMap<String, Tree> getChildrenDiscrete() {
+        return this.childrenDiscrete;
+    }
+
     /**
      * Search for a label node
      *
@@ -106,6 +139,36 @@ public class Tree implements Serializable {
         }
     }
 
+    /**
+     * Search for a label node given a row of a data matrix
+     *
+     * @param node
+     * @param data
+     * @param row
+     * @return
+     */
+    public String search(final Tree node, final DataMatrix data, final int row) {
+
+        if (node.attribute.isTarget()) {
+            return node.nodeName;
+        }
+
+        final int column = data.getColumnIndex(node.nodeName);
+        if (node.attribute.isContinuous()) {
+            // check if value smaller or greater than threshold and continue search recursively
+            int direction = data.getContinuousColumn(column)[row] <= node.threshold ?
+                    0 : // left
+                    1; // right
+            return search(node.childrenContinuous.get(direction), data, row);
+        }
+        final Tree child = node.childrenDiscrete.get(data.getDictionary(column)[data.getDiscreteColumn(column)[row]]);
+        if (child == null) {
+            // Classifier does not know this value
+            return " ";
+        }
+        return search(child, data, row);
+    }
+
 
 }
 
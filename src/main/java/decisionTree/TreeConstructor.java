@@ -1,56 +1,129 @@
 package decisionTree;
 
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import driver.Attribute;
+import driver.DataMatrix;
 import driver.Gain;
 import driver.Pruning;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.lang.SerializationUtils;
 
-import java.math.BigDecimal;
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Created by Suavek on 07/11/2016.
  */
 public class TreeConstructor {
 
+    // n * log2(n) for the small counts, the bulk of the entropy calculations
+    private static final double[] N_LOG2_N = new double[1 << 16];
+
+    static {
+        for (int n = 1; n < N_LOG2_N.length; n++) {
+            N_LOG2_N[n] = n * Math.log(n) / Math.log(2);
+        }
+    }
+
     Tree root;
+    private final DataMatrix data;
+    private final int[] labels;
+    private final int numberOfLabels;
+    private final Attribute target;
+    private final InductionOptions options;
+    // copies of each row in the sample, null when every row counts once
+    private final int[] weights;
+    // seed of the attributes chosen at random at each node
+    private final long seed;
+    // quantized continuous attributes in histogram mode, otherwise null
+    private final QuantileBins bins;
 
-    public TreeConstructor(final List<CSVRecord> dataSet, final HashMap attributes, final Attribute targetAttribute) {
-        this.root = constructDecisionTree(dataSet, attributes, targetAttribute);
+    /**
+     * @param data - columnar data set
+     * @param rows - indices of the rows to train on
+     */
+    public TreeConstructor(final DataMatrix data, final int[] rows) {
+        this(data, rows, new InductionOptions());
+    }
+
+    /**
+     * @param data    - columnar data set
+     * @param rows    - indices of the rows to train on
+     * @param options - induction settings
+     */
+    public TreeConstructor(final DataMatrix data, final int[] rows, final InductionOptions options) {
+        this(data, rows, null, options, 0);
+    }
+
+    /**
+     * Grows a tree on a weighted sample of the rows, such as a bootstrap sample, without copying any data
+     *
+     * @param data    - columnar data set
+     * @param rows    - indices of the rows to train on, each given once
+     * @param weights - number of copies of each row of the data matrix in the sample, null when every row counts once
+     * @param options - induction settings
+     * @param seed    - seed of the random choice of attributes when the options limit the features per node
+     */
+    public TreeConstructor(final DataMatrix data, final int[] rows, final int[] weights, final InductionOptions options, final long seed) {
+        this.data = data;
+        this.options = options;
+        this.weights = weights;
+        this.seed = seed;
+        this.labels = data.getLabels();
+        this.numberOfLabels = data.getNumberOfLabels();
+        this.target = data.getAttribute(data.getTargetColumn());
+        // every attribute apart from the target takes part in the first split
+        final boolean[] attributes = new boolean[data.getNumberOfColumns()];
+        Arrays.fill(attributes, true);
+        attributes[data.getTargetColumn()] = false;
+        // histograms replace the sorted rows, so nothing is sorted in histogram mode
+        this.bins = options.getHistogramBins() > 0 ? QuantileBins.of(data, rows, options.getHistogramBins()) : null;
+        final int[][] histograms = this.bins != null ? buildHistograms(rows) : null;
+        final int[][] sorted = options.isPresorted() && this.bins == null ? presort(rows) : null;
+        // labels are counted once, every child receives its counts from the split of its parent
+        final int[] occurrences = countDecisionClassLabels(rows);
+        this.root = options.isParallelSubtrees() && !ForkJoinTask.inForkJoinPool() ?
+                options.getExecutor().invoke(new SubtreeTask(rows, occurrences, attributes, sorted, histograms)) :
+                constructDecisionTree(rows, occurrences, attributes, sorted, histograms);
     }
 
     /**
      * Iterative method that constructs a decision tree based on the given dataset.
      *
-     * @param dataSet    - List of classified examples to train on
-     * @param attributes - List of attributes
-     * @param target     - The target attribute
+     * @param rows        - indices of classified examples to train on
+     * @param occurrences - occurrences of each label code in the rows
+     * @param attributes  - flags of the columns that can still be used for splitting
+     * @param sorted     - rows sorted by each continuous attribute in presorted mode, otherwise null
+     * @param histograms - occurrences of labels in each bin of each continuous attribute in histogram mode, otherwise null
      * @return
      */
-    //http://blog.takipi.com/benchmark-how-java-8-lambdas-and-streams-can-make-your-code-5-times-slower/ lambda performance
-    private static Tree constructDecisionTree(final List<CSVRecord> dataSet, final HashMap<String, Attribute> attributes, final Attribute target) {
+    private Tree constructDecisionTree(final int[] rows, final int[] occurrences, final boolean[] attributes, final int[][] sorted, final int[][] histograms) {
+        checkCancelled();
 
         // Calculate Target Entropy
-        final double targetEntropy = calculateEntropy(dataSet, target);
+        final double targetEntropy = calculateEntropy(occurrences, this.weights == null ? rows.length : sum(occurrences));
         // if entropy = 0 create leaf
         if (!(targetEntropy > 0)) {
             // extract label
-            final CSVRecord instance = Iterables.get(dataSet, 0);
+            final String label = getLabel(this.labels[rows[0]]);
 
-            System.out.println("\n------------------" + instance.get(target.getName()) + "\n\n");
+            if (this.options.isVerbose())
+                System.out.println("\n------------------" + label + "\n\n");
             // create and return new node of target type
-            return new Tree(instance.get(target.getName()), target);
+            return new Tree(label, this.target);
         }
 
         // holds information on the attribute that gives the maximum gain
-        final Gain maximumGain = getMaximumGain(dataSet, attributes, target, targetEntropy);
-        dataSet.removeAll(dataSet); // remove processed data
+        final Gain maximumGain = getMaximumGain(rows, attributes, sorted, histograms, occurrences, targetEntropy);
+        // no attributes left to split on
+        if (maximumGain == null) {
+            return new Tree(getLabel(getMostOccurringLabel(occurrences)), this.target);
+        }
 
-        if (Pruning.getSplitCriterion(maximumGain))
+        if (this.options.isVerbose() && Pruning.getSplitCriterion(maximumGain))
             System.out.println("\nFeature: " + maximumGain.getAttributeName() + "\nGAIN: " + maximumGain.getGain() + "\nTHRESHOLD: " + maximumGain.getValue() + "\nSPLIT :" + Pruning.getSplitCriterion(maximumGain) + "\n");
 
         // Create new decision node using attribute that gives the biggest gain
@@ -58,33 +131,37 @@ public class TreeConstructor {
 
         // Add children
         // If Attribute is discrete
-        if (!maximumGain.getAttribute().isContinuous()) {
+        if (!this.data.isContinuous(maximumGain.getColumn())) {
             //Exclude attribute from the next iteration
-            HashMap<String, Attribute> reducedAttributesList = (HashMap<String, Attribute>) SerializationUtils.clone(attributes);
-            reducedAttributesList.remove(maximumGain.getAttribute().getName());
-            // reate children nodes given names of the discrete Attribute values
-            maximumGain.getSubsetsDiscrete().forEach((value, subset) ->
+            final boolean[] reducedAttributesList = attributes.clone();
+            reducedAttributesList[maximumGain.getColumn()] = false;
+            // create children nodes given names of the discrete Attribute values
+            final String[] values = this.data.getDictionary(maximumGain.getColumn());
+            final int[][] subsets = splitDiscrete(rows, maximumGain);
+            final Tree[] children = constructSubtrees(rows.length, subsets, maximumGain.getOccurrencesOfLabelsInSubsets(), reducedAttributesList,
+                    splitSorted(sorted, maximumGain, subsets.length), splitHistograms(histograms, subsets));
+            for (int value = 0; value < subsets.length; value++) {
+                if (subsets[value] != null) {
                     node.addChild(
                             maximumGain.getAttribute(),
-                            value.toString(),
-                            constructDecisionTree((List<CSVRecord>) subset, reducedAttributesList, target))
-            );
+                            values[value],
+                            children[value]);
+                }
+            }
         } else {
             // grow only if growth improves impurity measure
             // check if data set should be split further (pre-pruning by use of mdl principle)
             if (Pruning.getSplitCriterion(maximumGain)) {
-                // if can be split, create child nodes recursively for each subset of dataSet 
-                maximumGain.getSubsets().forEach(subset ->
-                        node.addChild(
-                                constructDecisionTree(
-                                        (List<CSVRecord>) subset,
-                                        attributes,
-                                        target)
-                        )
-                );
+                // if can be split, create child nodes recursively for each subset of dataSet
+                final int[][] subsets = splitContinuous(rows, maximumGain);
+                final int[][] occurrenceSubsets = {maximumGain.getLeftOccurrences(), maximumGain.getRightOccurrences()};
+                for (final Tree child : constructSubtrees(rows.length, subsets, occurrenceSubsets, attributes,
+                        splitSorted(sorted, maximumGain, subsets.length), splitHistograms(histograms, subsets))) {
+                    node.addChild(child);
+                }
             } else {
-                // if can't be split, create leaf node taking most occurring label 
-                return new Tree(maximumGain.getMostOccurringLabel(), target);
+                // if can't be split, create leaf node taking most occurring label
+                return new Tree(getLabel(maximumGain.getMostOccurringLabel()), this.target);
 
             }
         }
@@ -92,60 +169,214 @@ public class TreeConstructor {
     }
 
     /**
-     * Method iterates through all attributes searching for and returning the biggest gain
+     * Constructs the subtrees of a node's children.
+     * In parallel mode, children of nodes at least as big as the sequential threshold are grown as fork/join tasks.
+     *
+     * @param size          - number of rows in the parent node
+     * @param subsets       - rows of each child, null entries are skipped
+     * @param occurrenceSubsets - occurrences of each label code in the rows of each child
+     * @param attributes
+     * @param sortedSubsets - sorted rows of each child in presorted mode, otherwise null
+     * @param histogramSubsets - histograms of each child in histogram mode, otherwise null
+     * @return - subtree of each child in the order of the subsets
+     */
+    private Tree[] constructSubtrees(final int size, final int[][] subsets, final int[][] occurrenceSubsets, final boolean[] attributes,
+                                     final int[][][] sortedSubsets, final int[][][] histogramSubsets) {
+        final Tree[] children = new Tree[subsets.length];
+        if (this.options.isParallelSubtrees() && size >= this.options.getSequentialThreshold() && ForkJoinTask.inForkJoinPool()) {
+            final List<SubtreeTask> tasks = Lists.newArrayList();
+            for (int subset = 0; subset < subsets.length; subset++) {
+                if (subsets[subset] != null) {
+                    tasks.add(new SubtreeTask(subsets[subset], occurrenceSubsets[subset], attributes, sortedSubsets == null ? null : sortedSubsets[subset],
+                            histogramSubsets == null ? null : histogramSubsets[subset]));
+                }
+            }
+            ForkJoinTask.invokeAll(tasks);
+            int task = 0;
+            for (int subset = 0; subset < subsets.length; subset++) {
+                if (subsets[subset] != null) {
+                    children[subset] = tasks.get(task++).join();
+                }
+            }
+            return children;
+        }
+        for (int subset = 0; subset < subsets.length; subset++) {
+            if (subsets[subset] != null) {
+                children[subset] = constructDecisionTree(subsets[subset], occurrenceSubsets[subset], attributes, sortedSubsets == null ? null : sortedSubsets[subset],
+                        histogramSubsets == null ? null : histogramSubsets[subset]);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Grows the subtree of a node as a fork/join task
+     */
+    private class SubtreeTask extends RecursiveTask<Tree> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] rows;
+        private final int[] occurrences;
+        private final boolean[] attributes;
+        private final int[][] sorted;
+        private final int[][] histograms;
+
+        SubtreeTask(final int[] rows, final int[] occurrences, final boolean[] attributes, final int[][] sorted, final int[][] histograms) {
+            this.rows = rows;
+            this.occurrences = occurrences;
+            this.attributes = attributes;
+            this.sorted = sorted;
+            this.histograms = histograms;
+        }
+
+        @Override
+        protected Tree compute() {
+            return constructDecisionTree(this.rows, this.occurrences, this.attributes, this.sorted, this.histograms);
+        }
+    }
+
+    /**
+     * Cancellation checkpoint, induction stops once the options are cancelled or the thread is interrupted
+     */
+    private void checkCancelled() {
+        if (this.options.isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Tree induction cancelled");
+        }
+    }
+
+    /**
+     * Method iterates through all attributes searching for and returning the biggest gain.
+     * Attributes are visited in column order, so the last of equal gains wins.
+     * In parallel mode the gains are calculated concurrently before being compared in the same order.
      *
-     * @param dataSet
+     * @param rows
      * @param attributes
-     * @param target
+     * @param sorted
+     * @param histograms
+     * @param occurrences   - occurrences of each label code in the rows
      * @param targetEntropy
-     * @return
+     * @return - the biggest gain or null if there are no attributes left to split on
      */
-    private static Gain getMaximumGain(List<CSVRecord> dataSet, HashMap<String, Attribute> attributes, Attribute target, double targetEntropy) {
-        final Gain[] maxGain = {null};
+    private Gain getMaximumGain(final int[] rows, final boolean[] availableAttributes, final int[][] sorted, final int[][] histograms,
+                                final int[] occurrences, final double targetEntropy) {
+        final boolean[] attributes = this.options.getFeaturesPerNode() > 0 ? chooseAttributes(rows, availableAttributes) : availableAttributes;
+        final Gain[] gains = this.options.isParallelAttributes() && rows.length >= this.options.getSequentialThreshold() ?
+                getGainsInParallel(rows, attributes, sorted, histograms, occurrences, targetEntropy) :
+                null;
+        Gain maxGain = null;
         // for each attribute excluding target
-        attributes.forEach((attributeName, attribute) -> {
-            if (attribute.isTarget())
-                return;
+        for (int column = 0; column < attributes.length; column++) {
+            if (!attributes[column])
+                continue;
             // Calculate gain
-            final Gain gainOfAnAttribute = getGain(dataSet, attribute, target, targetEntropy);
+            final Gain gainOfAnAttribute = gains != null ?
+                    gains[column] :
+                    getGain(rows, column, sorted, histograms, occurrences, targetEntropy);
             // if greater or equal to previous, set as biggest
-            if (maxGain[0] == null) {
-                maxGain[0] = gainOfAnAttribute;
-            } else if (gainOfAnAttribute.getGain() >= maxGain[0].getGain()) {
-                maxGain[0] = gainOfAnAttribute;
+            if (gainOfAnAttribute == null) {
+                continue;
+            } else if (maxGain == null) {
+                maxGain = gainOfAnAttribute;
+            } else if (gainOfAnAttribute.getGain() >= maxGain.getGain()) {
+                maxGain = gainOfAnAttribute;
             }
-        });
-        return maxGain[0];
+        }
+        return maxGain;
     }
 
 
+    /**
+     * Chooses at random as many of the available attributes as the options allow per node.
+     * The draw depends on the seed and the rows of the node only, so it does not change with the order the nodes grow in.
+     *
+     * @param rows       - rows of the node
+     * @param attributes - flags of the columns that can still be used for splitting
+     * @return - flags of the chosen columns
+     */
+    private boolean[] chooseAttributes(final int[] rows, final boolean[] attributes) {
+        final int[] columns = new int[attributes.length];
+        int available = 0;
+        for (int column = 0; column < attributes.length; column++) {
+            if (attributes[column]) {
+                columns[available++] = column;
+            }
+        }
+        final int chosen = this.options.getFeaturesPerNode();
+        if (available <= chosen) {
+            return attributes;
+        }
+        final Random random = new Random(this.seed ^ ((long) rows[0] << 32 | rows.length));
+        // partial Fisher-Yates shuffle, the first columns are the chosen ones
+        final boolean[] chosenAttributes = new boolean[attributes.length];
+        for (int i = 0; i < chosen; i++) {
+            final int j = i + random.nextInt(available - i);
+            final int column = columns[j];
+            columns[j] = columns[i];
+            columns[i] = column;
+            chosenAttributes[column] = true;
+        }
+        return chosenAttributes;
+    }
+
+    /**
+     * Calculates the gains of all attributes concurrently.
+     * Within a fork/join pool the attributes are forked as sub tasks, otherwise they are submitted to the executor of the options.
+     *
+     * @param rows
+     * @param attributes
+     * @param sorted
+     * @param histograms
+     * @param occurrences
+     * @param targetEntropy
+     * @return - gain of each column, null for columns not taking part
+     */
+    private Gain[] getGainsInParallel(final int[] rows, final boolean[] attributes, final int[][] sorted, final int[][] histograms,
+                                      final int[] occurrences, final double targetEntropy) {
+        final Gain[] gains = new Gain[attributes.length];
+        final List<Callable<Gain>> tasks = Lists.newArrayList();
+        final List<Integer> columns = Lists.newArrayList();
+        for (int column = 0; column < attributes.length; column++) {
+            if (attributes[column]) {
+                final int attribute = column;
+                tasks.add(() -> getGain(rows, attribute, sorted, histograms, occurrences, targetEntropy));
+                columns.add(column);
+            }
+        }
+        final List<Gain> results = this.options.invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            gains[columns.get(i)] = results.get(i);
+        }
+        return gains;
+    }
+
     /**
      * Method calculates and returns gain of a given Attribute
      *
-     * @param dataSet
-     * @param attribute
-     * @param target
+     * @param rows
+     * @param column
+     * @param sorted
+     * @param histograms
+     * @param occurrences
      * @param targetEntropy
-     * @return
+     * @return - gain of the attribute or null if its values offer no threshold
      */
-    private static Gain getGain(final List<CSVRecord> dataSet, final Attribute attribute, final Attribute target, final double targetEntropy) {
-        final Gain[] finalGain = {new Gain()};
-        // Create thresholds for either Discrete or Continuous data
-        final ArrayList<String> thresholds = createThresholdsForAttribute(dataSet, attribute, target);
-        // if Attribute is Continuous then find gains for each from given thresholds and return biggest 
-        if (attribute.isContinuous()) {
-            thresholds.forEach(threshold -> {
-                // Calculate gain of Continuous Attribute based on a given threshold
-                final Gain tmp = getContinuousAttributeGain(dataSet, attribute, target, targetEntropy, threshold);
-                // if greater than previous then set as new biggest
-                if (tmp.getGain() >= finalGain[0].getGain()) {
-                    finalGain[0] = tmp;
-                }
-            });
-            return finalGain[0];
+    private Gain getGain(final int[] rows, final int column, final int[][] sorted, final int[][] histograms,
+                         final int[] occurrences, final double targetEntropy) {
+        checkCancelled();
+        // in histogram mode the thresholds of a continuous attribute are the edges of its bins
+        if (histograms != null && this.data.isContinuous(column)) {
+            return getHistogramGain(this.data.getAttribute(column), column, this.bins.getEdges(column), histograms[column], occurrences, targetEntropy);
+        }
+        // if Attribute is Continuous then find the biggest gain among its thresholds
+        if (this.data.isContinuous(column)) {
+            final int[] sortedRows = sorted != null ?
+                    sorted[column] :
+                    sortRows(rows, this.data.getContinuousColumn(column));
+            return getContinuousAttributeGain(sortedRows, column, occurrences, targetEntropy);
         } else {
             // Otherwise, calculate gain for the Discrete Attribute
-            return getDiscreteAttributeGain(dataSet, attribute, target, targetEntropy, thresholds);
+            return getDiscreteAttributeGain(rows, column, targetEntropy);
         }
     }
 
@@ -153,190 +384,500 @@ public class TreeConstructor {
     /**
      * This method calculates and returns the information gain of a discrete atrribute.
      *
-     * @param dataSet
-     * @param attribute
-     * @param target
+     * @param rows
+     * @param column
      * @param targetEntropy
-     * @param uniqueAttributeValues
      * @author jamesfallon
      * @return
      */
-    public static Gain getDiscreteAttributeGain(final List<CSVRecord> dataSet, final Attribute attribute, final Attribute target, final double targetEntropy, final ArrayList<String> uniqueAttributeValues) {
+    public Gain getDiscreteAttributeGain(final int[] rows, final int column, final double targetEntropy) {
+        final int[] values = this.data.getDiscreteColumn(column);
 
-        //Map to hold subsets for each unique attribute value
-        Map<String, List<CSVRecord>> subsets = Maps.newLinkedHashMap();
+        //Count of each target value for each unique attribute value
+        final int[][] occurrencesOfLabelsInSubsets = new int[this.data.getDictionary(column).length][this.numberOfLabels];
+        for (final int row : rows) {
+            occurrencesOfLabelsInSubsets[values[row]][this.labels[row]] += weight(row);
+        }
+        return getDiscreteGain(this.data.getAttribute(column), column, occurrencesOfLabelsInSubsets, targetEntropy);
+    }
 
-        //Map to hold the count of each target value for each unique attribute value
-        Map<String, Map> occurrencesOfLabelsInSubsets = Maps.newLinkedHashMap();
+    /**
+     * Calculates the information gain of a discrete attribute given the occurrences of labels for each of its values
+     *
+     * @param attribute
+     * @param column
+     * @param occurrencesOfLabelsInSubsets - occurrences of each label code for every value code
+     * @param targetEntropy
+     * @return
+     */
+    static Gain getDiscreteGain(final Attribute attribute, final int column, final int[][] occurrencesOfLabelsInSubsets, final double targetEntropy) {
+        final int numberOfSamples = sum(occurrencesOfLabelsInSubsets);
+
+        //Entropy of each subset
+        final double[] subsetsEntropies = new double[occurrencesOfLabelsInSubsets.length];
+        double gain = targetEntropy;
+        //Iterate through the subsets, extract individual information gain and calculate gain of the entire dataSet
+        for (int value = 0; value < occurrencesOfLabelsInSubsets.length; value++) {
+            final int subsetSize = sum(occurrencesOfLabelsInSubsets[value]);
+            if (subsetSize == 0) {
+                continue;
+            }
+            double probabilityOfSubset = (double) subsetSize / (double) numberOfSamples;
+            double entropyOfSubset = calculateEntropy(occurrencesOfLabelsInSubsets[value], subsetSize);
+            gain -= (probabilityOfSubset * entropyOfSubset);
+            subsetsEntropies[value] = entropyOfSubset;
+        }
+        return new Gain(attribute, column, gain, occurrencesOfLabelsInSubsets, subsetsEntropies);
+    }
 
-        uniqueAttributeValues.forEach(value -> {
-            //Holds examples that have the given attribute value
-            final List<CSVRecord> subset = Lists.newArrayList();
-            //Loop through all examples and if that example contains the attribute value add it to the subset
-            dataSet.forEach(example -> {
-                if (value.equals(example.get(attribute.getName()))) {
-                    subset.add(example);
+    /**
+     * Method calculates and returns the biggest gain of the Continuous Attribute in a single sweep over the sorted rows.
+     * A threshold is placed wherever the decision class changes between neighbouring examples, at the value of the former.
+     * Occurrences of labels on both sides of the threshold are updated as the sweep moves,
+     * so every threshold is evaluated without another pass over the data.
+     * Thresholds are visited in ascending order and the last of equal gains wins.
+     *
+     * @param sortedRows  - rows sorted by the values of the attribute, missing values last
+     * @param column
+     * @param occurrences - occurrences of each label code in the rows
+     * @param targetEntropy
+     * @return - the biggest gain or null if there is no threshold
+     */
+    public Gain getContinuousAttributeGain(final int[] sortedRows, final int column, final int[] occurrences, final double targetEntropy) {
+        final double[] values = this.data.getContinuousColumn(column);
+        final int numRows = sortedRows.length;
+        final int numInstances = this.weights == null ? numRows : sum(occurrences);
+        // occurrences of labels below/equal and above the current threshold
+        final int[] decisionClassesLeft = new int[this.numberOfLabels];
+        final int[] decisionClassesRight = occurrences.clone();
+        int bestBoundary = -1;
+        double bestGain = 0;
+        // true if the decision class changes after any example holding the current value
+        boolean labelChanged = false;
+        int numInstancesBelowThreshold = 0;
+        for (int i = 0; i < numRows; i++) {
+            final int row = sortedRows[i];
+            final double value = values[row];
+            // missing values never fall below a threshold
+            if (Double.isNaN(value)) {
+                break;
+            }
+            final int weight = weight(row);
+            decisionClassesLeft[this.labels[row]] += weight;
+            decisionClassesRight[this.labels[row]] -= weight;
+            numInstancesBelowThreshold += weight;
+            final boolean last = i + 1 == numRows;
+            if (!last && this.labels[sortedRows[i + 1]] != this.labels[row]) {
+                labelChanged = true;
+            }
+            // evaluate the threshold once all examples of equal value are on the left
+            if (last || values[sortedRows[i + 1]] != value) {
+                if (labelChanged) {
+                    final int numInstancesAboveThreshold = numInstances - numInstancesBelowThreshold;
+                    final double gain = targetEntropy
+                            - ((double) numInstancesBelowThreshold / numInstances) * calculateEntropy(decisionClassesLeft, numInstancesBelowThreshold)
+                            - ((double) numInstancesAboveThreshold / numInstances) * calculateEntropy(decisionClassesRight, numInstancesAboveThreshold);
+                    if (bestBoundary < 0 || gain >= bestGain) {
+                        bestBoundary = i;
+                        bestGain = gain;
+                    }
                 }
-            });
-            //Add subset to the list of subsets
-            subsets.put(value, subset);
-            //Add the target values count for this unique attribute value
-            occurrencesOfLabelsInSubsets.put(value.toString(), countDecisionClassLabels(subset, target));
-        });
-
-        //Map to hold the entropy of each subset
-        Map subsetsEntropies = Maps.newLinkedHashMap();
-        final double[] gain = {targetEntropy};
-        //Iterate through the list of subsets, extract individual information gain and calculate gain of the entire dataSet
-        subsets.forEach((value, subset) -> {
-            double probabilityOfSubset = (double) subset.size() / (double) dataSet.size();
-            double entropyOfSubset = calculateEntropy(subset, target);
-            gain[0] -= (probabilityOfSubset * entropyOfSubset);
-            subsetsEntropies.put(value, entropyOfSubset);
-        });
-        return new Gain(attribute, gain, subsets, occurrencesOfLabelsInSubsets, subsetsEntropies);
+                labelChanged = false;
+            }
+        }
+        if (bestBoundary < 0) {
+            return null;
+        }
+
+        // rebuild occurrences of labels for the winning threshold
+        final int[] bestLeft = new int[this.numberOfLabels];
+        for (int i = 0; i <= bestBoundary; i++) {
+            bestLeft[this.labels[sortedRows[i]]] += weight(sortedRows[i]);
+        }
+        final int[] bestRight = occurrences.clone();
+        for (int label = 0; label < this.numberOfLabels; label++) {
+            bestRight[label] -= bestLeft[label];
+        }
+        return createContinuousGain(this.data.getAttribute(column), column, targetEntropy, values[sortedRows[bestBoundary]], bestLeft, bestRight);
     }
 
     /**
-     * Method calculates and returns gain of the Continuous Attribute
+     * Calculates the biggest gain of a continuous attribute among the edges of its bins in a single sweep over its histogram.
+     * The cost depends on the number of bins and labels only, not on the number of rows or distinct values.
+     * Edges are visited in ascending order and the last of equal gains wins.
      *
-     * @param dataSet
      * @param attribute
-     * @param target
+     * @param column
+     * @param edges         - upper edge of each bin
+     * @param histogram     - occurrences of labels in each bin, bin by bin, the bin of missing values last
+     * @param occurrences   - occurrences of each label code in the rows
      * @param targetEntropy
-     * @param threshold
-     * @return
+     * @return - the biggest gain or null if the rows fall in a single bin
      */
-    public static Gain getContinuousAttributeGain(final List<CSVRecord> dataSet, final Attribute attribute, final Attribute target, final double targetEntropy, final String threshold) {
-        // holds subsets of data, below and above the threshold
-        final List instancesBelowThreshold = Lists.newArrayList();
-        final List instancesAboveThreshold = Lists.newArrayList();
-        // for each instance in the dataSet
-        dataSet.forEach(instance -> {
-            // Get Attribute's value from the current instance
-            final String value = instance.get(attribute.getName());
-            // if value smaller equal than threshold, associate instance with the left subset, otherwise right
-            if (new BigDecimal(value).compareTo(new BigDecimal(threshold)) <= 0) {
-                instancesBelowThreshold.add(instance);
-            } else {
-                instancesAboveThreshold.add(instance);
+    static Gain getHistogramGain(final Attribute attribute, final int column, final double[] edges, final int[] histogram,
+                                 final int[] occurrences, final double targetEntropy) {
+        final int numberOfLabels = occurrences.length;
+        final int numInstances = sum(occurrences);
+        final int[] decisionClassesLeft = new int[numberOfLabels];
+        final int[] decisionClassesRight = occurrences.clone();
+        int numInstancesBelowThreshold = 0;
+        int bestBin = -1;
+        double bestGain = 0;
+        for (int bin = 0; bin < edges.length; bin++) {
+            int binSize = 0;
+            for (int label = 0; label < numberOfLabels; label++) {
+                final int occurrence = histogram[bin * numberOfLabels + label];
+                decisionClassesLeft[label] += occurrence;
+                decisionClassesRight[label] -= occurrence;
+                binSize += occurrence;
+            }
+            numInstancesBelowThreshold += binSize;
+            // an edge splits the rows only if there are rows on both of its sides
+            if (binSize == 0 || numInstancesBelowThreshold == numInstances) {
+                continue;
+            }
+            final int numInstancesAboveThreshold = numInstances - numInstancesBelowThreshold;
+            final double gain = targetEntropy
+                    - ((double) numInstancesBelowThreshold / numInstances) * calculateEntropy(decisionClassesLeft, numInstancesBelowThreshold)
+                    - ((double) numInstancesAboveThreshold / numInstances) * calculateEntropy(decisionClassesRight, numInstancesAboveThreshold);
+            if (bestBin < 0 || gain >= bestGain) {
+                bestBin = bin;
+                bestGain = gain;
+            }
+        }
+        if (bestBin < 0) {
+            return null;
+        }
+
+        // rebuild occurrences of labels for the winning edge
+        final int[] bestLeft = new int[numberOfLabels];
+        for (int i = 0; i < (bestBin + 1) * numberOfLabels; i++) {
+            bestLeft[i % numberOfLabels] += histogram[i];
+        }
+        final int[] bestRight = occurrences.clone();
+        for (int label = 0; label < numberOfLabels; label++) {
+            bestRight[label] -= bestLeft[label];
+        }
+        return createContinuousGain(attribute, column, targetEntropy, edges[bestBin], bestLeft, bestRight);
+    }
+
+    /**
+     * Counts the occurrences of labels in each bin of each continuous attribute
+     *
+     * @param rows
+     * @return - histogram of each continuous column, null for the other columns
+     */
+    private int[][] buildHistograms(final int[] rows) {
+        final int[][] histograms = new int[this.data.getNumberOfColumns()][];
+        for (int column = 0; column < histograms.length; column++) {
+            if (this.bins.isBinned(column)) {
+                final int[] bins = this.bins.getBins(column);
+                final int[] histogram = new int[(this.bins.getNumberOfBins(column) + 1) * this.numberOfLabels];
+                for (final int row : rows) {
+                    histogram[bins[row] * this.numberOfLabels + this.labels[row]] += weight(row);
+                }
+                histograms[column] = histogram;
             }
-        });
+        }
+        return histograms;
+    }
+
+    /**
+     * Derives the histograms of the children of a split. Only the rows of the smaller children are counted,
+     * the biggest child takes the histograms of the node less those of its siblings.
+     * The histograms of the node are reused for the biggest child.
+     * Children with fewer rows than bins get no histograms, sorting their rows costs less than sweeping the bins,
+     * so they and their subtrees fall back to exact thresholds.
+     *
+     * @param histograms - histograms of the node or null when not in histogram mode
+     * @param subsets    - rows of each child, null entries are skipped
+     * @return - histograms indexed by child and column or null when not in histogram mode
+     */
+    private int[][][] splitHistograms(final int[][] histograms, final int[][] subsets) {
+        if (histograms == null) {
+            return null;
+        }
+        int biggest = -1;
+        for (int subset = 0; subset < subsets.length; subset++) {
+            if (subsets[subset] != null && (biggest < 0 || subsets[subset].length > subsets[biggest].length)) {
+                biggest = subset;
+            }
+        }
+        final int[][][] histogramSubsets = new int[subsets.length][][];
+        for (int subset = 0; subset < subsets.length; subset++) {
+            if (subsets[subset] == null || subset == biggest) {
+                continue;
+            }
+            final int[][] subsetHistograms = buildHistograms(subsets[subset]);
+            for (int column = 0; column < histograms.length; column++) {
+                if (histograms[column] != null) {
+                    for (int i = 0; i < histograms[column].length; i++) {
+                        histograms[column][i] -= subsetHistograms[column][i];
+                    }
+                }
+            }
+            if (subsets[subset].length >= this.options.getHistogramBins()) {
+                histogramSubsets[subset] = subsetHistograms;
+            }
+        }
+        if (subsets[biggest].length >= this.options.getHistogramBins()) {
+            histogramSubsets[biggest] = histograms;
+        }
+        return histogramSubsets;
+    }
 
+    /**
+     * Calculates information gain of a binary split given occurrences of labels on both sides of the threshold
+     *
+     * @param attribute
+     * @param column
+     * @param targetEntropy
+     * @param threshold
+     * @param decisionClassesLeft
+     * @param decisionClassesRight
+     * @return
+     */
+    private static Gain createContinuousGain(final Attribute attribute, final int column, final double targetEntropy, final double threshold,
+                                             final int[] decisionClassesLeft, final int[] decisionClassesRight) {
         // Calculate information gain
         // Probabilities of subsets
-        final double numInstancesBelowThreshold = instancesBelowThreshold.size();
-        final double numInstancesAboveThreshold = instancesAboveThreshold.size();
+        final double numInstancesBelowThreshold = sum(decisionClassesLeft);
+        final double numInstancesAboveThreshold = sum(decisionClassesRight);
         final double numInstances = numInstancesBelowThreshold + numInstancesAboveThreshold;
         final double probA = numInstancesBelowThreshold / numInstances;
         final double probB = numInstancesAboveThreshold / numInstances;
 
         // Calculate subset's entropy
-        final double entropyA = calculateEntropy(instancesBelowThreshold, target);
-        final double entropyB = calculateEntropy(instancesAboveThreshold, target);
+        final double entropyA = calculateEntropy(decisionClassesLeft, (int) numInstancesBelowThreshold);
+        final double entropyB = calculateEntropy(decisionClassesRight, (int) numInstancesAboveThreshold);
 
         //Calculate gain for the given threshold
         final double gain = targetEntropy - (probA * entropyA) - (probB * entropyB);
 
-        // Create labels occurrences maps for each subset
-        final HashMap decisionClassesLeft = countDecisionClassLabels(instancesBelowThreshold, target);
-        final HashMap decisionClassesRight = countDecisionClassLabels(instancesAboveThreshold, target);
+        return new Gain(attribute, column, entropyA, entropyB, threshold, gain, decisionClassesLeft, decisionClassesRight, targetEntropy);
+    }
 
-        return new Gain(attribute, entropyA, entropyB, threshold, gain, decisionClassesLeft, decisionClassesRight, instancesBelowThreshold, instancesAboveThreshold, targetEntropy);
+    /**
+     * Sorts the rows by every continuous attribute, used once at the root in presorted mode
+     *
+     * @param rows
+     * @return - sorted rows for each continuous column, null for the other columns
+     */
+    private int[][] presort(final int[] rows) {
+        final int[][] sorted = new int[this.data.getNumberOfColumns()][];
+        for (int column = 0; column < sorted.length; column++) {
+            if (column != this.data.getTargetColumn() && this.data.isContinuous(column)) {
+                checkCancelled();
+                sorted[column] = sortRows(rows, this.data.getContinuousColumn(column));
+            }
+        }
+        return sorted;
     }
 
     /**
-     * Method generates thresholds for the Continuous and Discrete Attributes
+     * Partitions the sorted rows of every continuous attribute between the children of a split.
+     * The partitioning is stable so the children receive their rows already sorted.
      *
-     * @param dataSet
-     * @param attribute
-     * @param target
-     * @return
+     * @param sorted
+     * @param gain
+     * @param numberOfSubsets
+     * @return - sorted rows indexed by child and column or null when not in presorted mode
      */
-    public static ArrayList createThresholdsForAttribute(final List<CSVRecord> dataSet, final Attribute attribute, final Attribute target) {
-        // Holds unique values of thresholds i ascending order
-        final TreeSet thresholds = new TreeSet<>();
-        // if discrete data then return all unique values
-        if (!attribute.isContinuous()) {
-            // get unique values of an attribute
-            dataSet.forEach(instance -> thresholds.add(instance.get(attribute.getName())));
-            return new ArrayList(thresholds);
-        }
-
-        // if data is continuous
-        // sort records in ascending order
-        Collections.sort(dataSet, (r1, r2) -> r1.get(attribute.getName()).compareTo(r2.get(attribute.getName())));
-        // extract thresholds by checking at what points the decision class changes
-        final CSVRecord[] previousInstance = {dataSet.get(0)};
-        // for every instance in the dataSet
-        dataSet.forEach(instance -> {
-            // compare current and previous labels
-            final String previousLabel = previousInstance[0].get(target.getName());
-            final String currentLabel = instance.get(target.getName());
-            // if different then add the Attribute value of the previous instance
-            if (!currentLabel.equals(previousLabel)) {
-                final String threshold = previousInstance[0].get(attribute.getName()).toString();
-                thresholds.add(threshold);
+    private int[][][] splitSorted(final int[][] sorted, final Gain gain, final int numberOfSubsets) {
+        if (sorted == null) {
+            return null;
+        }
+        final int[][][] sortedSubsets = new int[numberOfSubsets][sorted.length][];
+        for (int column = 0; column < sorted.length; column++) {
+            if (sorted[column] == null) {
+                continue;
+            }
+            final int[][] subsets = this.data.isContinuous(gain.getColumn()) ?
+                    splitContinuous(sorted[column], gain) :
+                    splitDiscrete(sorted[column], gain);
+            for (int subset = 0; subset < numberOfSubsets; subset++) {
+                sortedSubsets[subset][column] = subsets[subset];
             }
-            previousInstance[0] = instance;
+        }
+        return sortedSubsets;
+    }
 
-        });
-        // return sorted list of unique thresholds
-        return new ArrayList(thresholds);
+    /**
+     * Splits the rows of a discrete attribute by value, the order of the rows is kept
+     *
+     * @param rows
+     * @param gain
+     * @return - rows for each value code, null where the value does not occur
+     */
+    private int[][] splitDiscrete(final int[] rows, final Gain gain) {
+        final int[] values = this.data.getDiscreteColumn(gain.getColumn());
+        final int[][] occurrences = gain.getOccurrencesOfLabelsInSubsets();
+        final int[][] subsets = new int[occurrences.length][];
+        final int[] sizes = new int[occurrences.length];
+        // occurrences count the copies of weighted rows, the rows themselves are counted again
+        final int[] numberOfRows = new int[occurrences.length];
+        if (this.weights != null) {
+            for (final int row : rows) {
+                numberOfRows[values[row]]++;
+            }
+        }
+        for (int value = 0; value < occurrences.length; value++) {
+            final int size = this.weights == null ? sum(occurrences[value]) : numberOfRows[value];
+            if (size > 0) {
+                subsets[value] = new int[size];
+            }
+        }
+        for (final int row : rows) {
+            subsets[values[row]][sizes[values[row]]++] = row;
+        }
+        return subsets;
+    }
 
+    /**
+     * Splits the rows of a continuous attribute into examples below or equal and above the threshold, the order of the rows is kept
+     *
+     * @param rows
+     * @param gain
+     * @return
+     */
+    private int[][] splitContinuous(final int[] rows, final Gain gain) {
+        final double[] values = this.data.getContinuousColumn(gain.getColumn());
+        int numberOfRowsBelow = gain.getLeftSize();
+        if (this.weights != null) {
+            // the sizes of the gain count the copies of weighted rows
+            numberOfRowsBelow = 0;
+            for (final int row : rows) {
+                if (values[row] <= gain.getThreshold()) {
+                    numberOfRowsBelow++;
+                }
+            }
+        }
+        final int[] below = new int[numberOfRowsBelow];
+        final int[] above = new int[rows.length - numberOfRowsBelow];
+        int belowSize = 0;
+        int aboveSize = 0;
+        for (final int row : rows) {
+            if (values[row] <= gain.getThreshold()) {
+                below[belowSize++] = row;
+            } else {
+                above[aboveSize++] = row;
+            }
+        }
+        return new int[][]{below, above};
+    }
+
+    /**
+     * Stable sort of the rows by their values, missing values go last
+     *
+     * @param rows
+     * @param values
+     * @return - new array of sorted rows
+     */
+    static int[] sortRows(final int[] rows, final double[] values) {
+        int[] source = rows.clone();
+        int[] target = new int[rows.length];
+        for (int width = 1; width < source.length; width *= 2) {
+            for (int from = 0; from < source.length; from += 2 * width) {
+                final int middle = Math.min(from + width, source.length);
+                final int to = Math.min(from + 2 * width, source.length);
+                int left = from;
+                int right = middle;
+                for (int i = from; i < to; i++) {
+                    if (left < middle && (right >= to || Double.compare(values[source[left]], values[source[right]]) <= 0)) {
+                        target[i] = source[left++];
+                    } else {
+                        target[i] = source[right++];
+                    }
+                }
+            }
+            final int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
     }
 
     /**
-     * Method calculates the entropy for a given set of data
+     * Method calculates the entropy for a given set of data.
+     * The entropy is rewritten as (n * log2(n) - sum of c * log2(c)) / n over the counts c,
+     * so small counts take no logarithm and nothing is allocated.
      *
-     * @param dataSet
-     * @param target
+     * @param occurrences      - occurrences of each label code
+     * @param numberOfSamples - size of the set
      * @return
      */
-    public static Double calculateEntropy(final List<CSVRecord> dataSet, final Attribute target) {
-        final double numberOfSamples = dataSet.size();
-        // count occurrences of each decision class
-        // returns HashMap where key = label and value = occurrence
-        final HashMap countMap = countDecisionClassLabels(dataSet, target);
-        final double[] entropy = {0};
-        // for each label in the countMap get its corresponding occurrences
-        // and use to calculate probabilities for entropy calculation
-        countMap.keySet().forEach(key -> {
-            final double probabilityOfValue = (
-                    Double.parseDouble(
-                            String.valueOf(countMap.get(key)))
-                            /
-                            numberOfSamples);
-            entropy[0] -= (probabilityOfValue * (Math.log(probabilityOfValue) / Math.log(2)));
-
-        });
-        return entropy[0];
+    public static double calculateEntropy(final int[] occurrences, final int numberOfSamples) {
+        if (numberOfSamples == 0) {
+            return 0;
+        }
+        double entropy = nLog2n(numberOfSamples);
+        for (final int occurrence : occurrences) {
+            entropy -= nLog2n(occurrence);
+        }
+        return entropy / numberOfSamples;
+    }
+
+    /**
+     * @param n
+     * @return - n * log2(n), 0 for 0
+     */
+    private static double nLog2n(final int n) {
+        return n < N_LOG2_N.length ? N_LOG2_N[n] : n * Math.log(n) / Math.log(2);
     }
 
     /**
      * This method gets the number of occurrences of each target value.
      *
-     * @param dataSet
-     * @param target
-     * @return
+     * @param rows
+     * @return - occurrences indexed by label code
      */
-    public static HashMap countDecisionClassLabels(final List<CSVRecord> dataSet, final Attribute target) {
-        final HashMap countMap = Maps.newHashMap();
-        // For each instance in the dataSet add that target value to the map or increment the count if it exists
-        dataSet.forEach(instance -> {
-
-            final String label = instance.get(target.getName()).toString();
-            if (!countMap.containsKey(label)) {
-                countMap.put(label, (double) 1);
-            } else {
-                Double count = (Double) countMap.get(label);
-                count = count + 1;
-                countMap.put(label, count);
-            }
-        });
+    public int[] countDecisionClassLabels(final int[] rows) {
+        final int[] countMap = new int[this.numberOfLabels];
+        // For each instance in the dataSet increment the count of its target value
+        for (final int row : rows) {
+            countMap[this.labels[row]] += weight(row);
+        }
         return countMap;
     }
 
+    static int getMostOccurringLabel(final int[] occurrences) {
+        int mostOccurring = 0;
+        for (int label = 1; label < occurrences.length; label++) {
+            if (occurrences[label] > occurrences[mostOccurring]) {
+                mostOccurring = label;
+            }
+        }
+        return mostOccurring;
+    }
+
+    static int sum(final int[] occurrences) {
+        int sum = 0;
+        for (final int occurrence : occurrences) {
+            sum += occurrence;
+        }
+        return sum;
+    }
+
+    private static int sum(final int[][] occurrencesOfLabelsInSubsets) {
+        int sum = 0;
+        for (final int[] occurrences : occurrencesOfLabelsInSubsets) {
+            sum += sum(occurrences);
+        }
+        return sum;
+    }
+
+    /**
+     * @param row
+     * @return - number of copies of the row in the sample
+     */
+    private int weight(final int row) {
+        return this.weights == null ? 1 : this.weights[row];
+    }
+
+    private String getLabel(final int code) {
+        return this.data.getLabelDictionary()[code];
+    }
+
     public Tree getDecisionTree() {
         return root;
     }
@@ -0,0 +1,422 @@
+package driver;
+
+import classifier.C45;
+import classifier.Classifier;
+import classifier.RandomForest;
+import classifier.Results;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import dataReader.BinaryDataReader;
+import dataReader.BinaryDataWriter;
+import dataReader.SpilledData;
+import decisionTree.CompiledTree;
+import decisionTree.InductionOptions;
+import decisionTree.OutOfCoreTreeConstructor;
+import decisionTree.Tree;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless entry point which trains, evaluates, saves models and scores files from the command line.
+ * Every command reports the time taken by each phase, its throughput in rows per second and the sum of the
+ * peak usages of the heap memory pools.
+ */
+public class CommandLineDriver {
+
+    private static final String USAGE = String.join("\n",
+            "usage: java -cp <jar> driver.CommandLineDriver <command> <arguments> [options]",
+            "",
+            "commands:",
+            "  train <data> <model>            train on all rows and save the model",
+            "  evaluate <data>                 train and test on a random split",
+            "  score <model> <data> <output>   write the predicted label of every row, csv files need no label column",
+            "  convert <csv> <data>            convert a csv file to the binary data set format (" + BinaryDataReader.EXTENSION + ")",
+            "",
+            "options:",
+            "  --split <fraction>     fraction of the rows to train on when evaluating, 0.66 by default",
+            "  --folds <k>            evaluate by k-fold cross validation",
+            "  --repetitions <n>      evaluate by n holdouts on different splits",
+            "  --stratified           keep the label proportions in every split",
+            "  --seed <seed>          seed of the random splits, 1 by default",
+            "  --results <file>       append the predictions of the evaluation to a csv file",
+            "  --presorted            sort the continuous attributes once at the root",
+            "  --parallel             grow subtrees and evaluate attributes in parallel",
+            "  --threads <n>          threads reading, training and evaluating, the common pool by default",
+            "  --bins <n>             choose thresholds among n quantiles of every continuous attribute",
+            "  --out-of-core <dir>    train on a csv file spilled to a directory, level by level, 256 bins by default",
+            "  --trees <n>            evaluate a random forest of n trees",
+            "  --features <k>         attributes drawn at random at every node, the square root of their number for a forest",
+            "  --verbose              print the splits as the tree grows");
+
+    // rows scored at a time, bounds the memory taken by the feature columns
+    private static final int SCORING_BLOCK = 1 << 16;
+
+    private final Map<String, String> options = Maps.newHashMap();
+    private final List<String> arguments = Lists.newArrayList();
+    private final List<MemoryPoolMXBean> heapPools = Lists.newArrayList();
+    private final PrintStream out;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private CommandLineDriver(final String[] args, final PrintStream out) {
+        this.out = out;
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                this.arguments.add(args[i]);
+            } else if (Arrays.asList("--split", "--folds", "--repetitions", "--seed", "--results", "--trees", "--features", "--bins", "--out-of-core", "--threads").contains(args[i])) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Option " + args[i] + " needs a value");
+                }
+                this.options.put(args[i], args[++i]);
+            } else {
+                this.options.put(args[i], "");
+            }
+        }
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                this.heapPools.add(pool);
+            }
+        }
+        if (this.options.containsKey("--threads")) {
+            final int threads = Integer.parseInt(this.options.get("--threads"));
+            if (threads < 1) {
+                throw new IllegalArgumentException("Threads must be at least 1");
+            }
+            this.pool = new ForkJoinPool(threads);
+        }
+    }
+
+    public static void main(final String... args) {
+        final int status = run(System.out, System.err, args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Runs a command, without exiting the JVM
+     *
+     * @param out  - receives the reports of the phases and the results of evaluations
+     * @param err  - receives the usage and the errors
+     * @param args - command, arguments and options
+     * @return - exit status: 0 on success, 1 when the command failed, 2 on a usage error
+     */
+    public static int run(final PrintStream out, final PrintStream err, final String... args) {
+        if (args.length == 0) {
+            err.println(USAGE);
+            return 2;
+        }
+        try {
+            final CommandLineDriver driver = new CommandLineDriver(args, out);
+            try {
+                driver.run();
+            } finally {
+                if (driver.pool != ForkJoinPool.commonPool()) {
+                    driver.pool.shutdown();
+                }
+            }
+            return 0;
+        } catch (final IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        } catch (final Exception e) {
+            e.printStackTrace(err);
+            return 1;
+        }
+    }
+
+    private void run() throws Exception {
+        if (this.arguments.isEmpty()) {
+            throw new IllegalArgumentException("Missing command");
+        }
+        final String command = this.arguments.get(0);
+        switch (command) {
+            case "train":
+                train(argument(1), argument(2));
+                break;
+            case "evaluate":
+                evaluate(argument(1));
+                break;
+            case "score":
+                score(argument(1), argument(2), argument(3));
+                break;
+            case "convert":
+                convert(argument(1), argument(2));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + command);
+        }
+        this.out.printf("sum of heap pool peaks: %d MB%n", getSumOfHeapPoolPeaks() / (1024 * 1024));
+    }
+
+    private void train(final String dataPath, final String modelPath) throws Exception {
+        if (this.options.containsKey("--trees")) {
+            throw new IllegalArgumentException("Random forests can not be saved, use evaluate");
+        }
+        if (this.options.containsKey("--out-of-core")) {
+            trainOutOfCore(dataPath, modelPath);
+            return;
+        }
+        final PreprocessedData ppd = load(dataPath);
+        final C45 classifier = createClassifier(createInductionOptions(ppd));
+        long start = System.nanoTime();
+        classifier.train(ppd);
+        report("train", start, ppd.getTrainingRows().length);
+        start = System.nanoTime();
+        classifier.save(modelPath);
+        report("save", start, classifier.getCompiledTree().getNumberOfNodes(), "nodes");
+    }
+
+    /**
+     * Trains without loading the data set, the csv file is spilled column by column to the given directory
+     * and the tree grows with one pass over the spilled columns per level
+     */
+    private void trainOutOfCore(final String dataPath, final String modelPath) throws Exception {
+        if (!dataPath.toLowerCase().endsWith(".csv")) {
+            throw new IllegalArgumentException("Out of core training reads csv files only");
+        }
+        long start = System.nanoTime();
+        final SpilledData data = SpilledData.spill(dataPath, this.options.get("--out-of-core"));
+        try {
+            report("spill", start, data.getNumberOfRows());
+            final InductionOptions inductionOptions = new InductionOptions();
+            inductionOptions.setExecutor(this.pool);
+            inductionOptions.setHistogramBins(Integer.parseInt(option("--bins", "0")));
+            inductionOptions.setVerbose(this.options.containsKey("--verbose"));
+            start = System.nanoTime();
+            final Tree tree = new OutOfCoreTreeConstructor(data, inductionOptions).getDecisionTree();
+            report("train", start, data.getNumberOfRows());
+            start = System.nanoTime();
+            final CompiledTree model = CompiledTree.compile(tree, data.getSchema());
+            model.save(modelPath);
+            report("save", start, model.getNumberOfNodes(), "nodes");
+        } finally {
+            data.delete();
+        }
+    }
+
+    private void evaluate(final String dataPath) throws Exception {
+        final PreprocessedData ppd = load(dataPath);
+        final long seed = Long.parseLong(option("--seed", "1"));
+        final double split = Double.parseDouble(option("--split", "0.66"));
+        final Results results;
+        if (this.options.containsKey("--folds") || this.options.containsKey("--repetitions")) {
+            // the runs train and test concurrently, so they are timed as one phase
+            final InductionOptions inductionOptions = createInductionOptions(ppd);
+            final CrossValidation crossValidation = new CrossValidation(ppd, () -> createEvaluatedClassifier(inductionOptions, seed), this.pool, seed);
+            crossValidation.setStratified(this.options.containsKey("--stratified"));
+            final long start = System.nanoTime();
+            final CrossValidation.Evaluation evaluation;
+            final int runs;
+            if (this.options.containsKey("--folds")) {
+                runs = Integer.parseInt(option("--folds", null));
+                evaluation = crossValidation.kFold(runs);
+            } else {
+                runs = Integer.parseInt(option("--repetitions", null));
+                evaluation = crossValidation.repeatedHoldout(runs, split);
+            }
+            report("evaluate", start, (long) runs * ppd.getDataMatrix().getNumberOfRows());
+            results = evaluation.getResults();
+            this.out.printf("mean accuracy: %.4f (standard deviation %.4f over %d runs)%n",
+                    evaluation.getMeanAccuracy(), evaluation.getStandardDeviationOfAccuracy(), runs);
+        } else {
+            if (!(split > 0.0 && split < 1.0)) {
+                throw new IllegalArgumentException("Split must be between 0 and 1");
+            }
+            ppd.splitTrainingTestPercentage(split, new Splitter(seed, this.options.containsKey("--stratified")));
+            final Classifier classifier = createEvaluatedClassifier(createInductionOptions(ppd), seed);
+            long start = System.nanoTime();
+            classifier.train(ppd);
+            report("train", start, ppd.getTrainingRows().length);
+            start = System.nanoTime();
+            classifier.test(ppd);
+            report("test", start, ppd.getTestingRows().length);
+            results = classifier.getResults();
+        }
+        this.out.printf("accuracy: %.4f%n%n", results.getAccuracy());
+        this.out.println(results.getConfusionMatrix());
+        this.out.println(results.getClassMetrics());
+        if (this.options.containsKey("--results")) {
+            results.printResultsToFile(this.options.get("--results"));
+        }
+    }
+
+    private void score(final String modelPath, final String dataPath, final String outputPath) throws Exception {
+        long start = System.nanoTime();
+        final C45 classifier = C45.load(modelPath);
+        final CompiledTree model = classifier.getCompiledTree();
+        report("load model", start, model.getNumberOfNodes(), "nodes");
+        if (dataPath.toLowerCase().endsWith(".csv")) {
+            start = System.nanoTime();
+            try (CSVPrinter printer = createPrinter(outputPath)) {
+                report("score", start, scoreRecords(classifier, dataPath, printer));
+            }
+            return;
+        }
+        final DataMatrix data = load(dataPath).getDataMatrix();
+        start = System.nanoTime();
+        try (CSVPrinter printer = createPrinter(outputPath)) {
+            final int[] predictions = new int[SCORING_BLOCK];
+            for (int from = 0; from < data.getNumberOfRows(); from += SCORING_BLOCK) {
+                final int[] rows = new int[Math.min(SCORING_BLOCK, data.getNumberOfRows() - from)];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = from + i;
+                }
+                printPredictions(classifier, model.getFeatureColumns(data, rows), rows.length, predictions, printer);
+            }
+        }
+        report("score", start, data.getNumberOfRows());
+    }
+
+    /**
+     * Scores the records of a csv file as they are read. Values are looked up by the feature names of the model,
+     * so the file needs no label column and may order its columns differently from the training data.
+     *
+     * @return - number of records scored
+     */
+    private static long scoreRecords(final C45 classifier, final String dataPath, final CSVPrinter printer) throws IOException {
+        final CompiledTree model = classifier.getCompiledTree();
+        final double[] features = new double[model.getNumberOfFeatures()];
+        final double[][] columns = new double[model.getNumberOfFeatures()][SCORING_BLOCK];
+        final int[] predictions = new int[SCORING_BLOCK];
+        long scored = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(dataPath), StandardCharsets.UTF_8)) {
+            // a byte order mark would become part of the first name of the header
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+            int count = 0;
+            for (final CSVRecord record : CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+                model.getFeatures(record, features);
+                for (int feature = 0; feature < features.length; feature++) {
+                    columns[feature][count] = features[feature];
+                }
+                if (++count == SCORING_BLOCK) {
+                    printPredictions(classifier, columns, count, predictions, printer);
+                    scored += count;
+                    count = 0;
+                }
+            }
+            printPredictions(classifier, columns, count, predictions, printer);
+            return scored + count;
+        }
+    }
+
+    private static CSVPrinter createPrinter(final String outputPath) throws IOException {
+        final CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8), CSVFormat.DEFAULT);
+        printer.printRecord("predicted");
+        return printer;
+    }
+
+    /**
+     * Classifies the first rows of a block of feature columns and prints their labels
+     */
+    private static void printPredictions(final C45 classifier, final double[][] columns, final int count,
+                                         final int[] predictions, final CSVPrinter printer) throws IOException {
+        classifier.classify(columns, 0, count, predictions);
+        for (int i = 0; i < count; i++) {
+            printer.printRecord(classifier.getLabel(predictions[i]));
+        }
+    }
+
+    private void convert(final String csvPath, final String dataPath) throws Exception {
+        final DataMatrix data = load(csvPath).getDataMatrix();
+        final long start = System.nanoTime();
+        BinaryDataWriter.write(data, dataPath);
+        report("write", start, data.getNumberOfRows());
+    }
+
+    private PreprocessedData load(final String dataPath) throws Exception {
+        final long start = System.nanoTime();
+        final PreprocessedData ppd = new PreprocessedData(dataPath, this.pool);
+        report("load", start, ppd.getDataMatrix().getNumberOfRows());
+        return ppd;
+    }
+
+    private InductionOptions createInductionOptions(final PreprocessedData ppd) {
+        final InductionOptions inductionOptions = new InductionOptions();
+        inductionOptions.setExecutor(this.pool);
+        if (this.options.containsKey("--features")) {
+            inductionOptions.setFeaturesPerNode(Integer.parseInt(this.options.get("--features")));
+        } else if (this.options.containsKey("--trees")) {
+            // every column but the target is an attribute
+            final int numberOfAttributes = ppd.getDataMatrix().getNumberOfColumns() - 1;
+            inductionOptions.setFeaturesPerNode(Math.max(1, (int) Math.round(Math.sqrt(numberOfAttributes))));
+        }
+        inductionOptions.setPresorted(this.options.containsKey("--presorted"));
+        inductionOptions.setParallelSubtrees(this.options.containsKey("--parallel"));
+        inductionOptions.setParallelAttributes(this.options.containsKey("--parallel"));
+        inductionOptions.setHistogramBins(Integer.parseInt(option("--bins", "0")));
+        inductionOptions.setVerbose(this.options.containsKey("--verbose"));
+        return inductionOptions;
+    }
+
+    private C45 createClassifier(final InductionOptions inductionOptions) {
+        return new C45(inductionOptions);
+    }
+
+    private Classifier createEvaluatedClassifier(final InductionOptions inductionOptions, final long seed) {
+        if (this.options.containsKey("--trees")) {
+            return new RandomForest(Integer.parseInt(this.options.get("--trees")), seed, inductionOptions);
+        }
+        return createClassifier(inductionOptions);
+    }
+
+    private String argument(final int index) {
+        if (index >= this.arguments.size()) {
+            throw new IllegalArgumentException("Missing arguments for " + this.arguments.get(0));
+        }
+        return this.arguments.get(index);
+    }
+
+    private String option(final String name, final String defaultValue) {
+        return this.options.containsKey(name) ? this.options.get(name) : defaultValue;
+    }
+
+    private void report(final String phase, final long start, final long rows) {
+        report(phase, start, rows, "rows");
+    }
+
+    /**
+     * Prints the time taken by a phase and its throughput
+     *
+     * @param phase
+     * @param start - System.nanoTime at the start of the phase
+     * @param count - number of items processed
+     * @param unit  - name of the items
+     */
+    private void report(final String phase, final long start, final long count, final String unit) {
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        this.out.printf("%-10s %10.3f s %12d %s %14.0f %s/s%n", phase + ":", seconds, count, unit, count / seconds, unit);
+    }
+
+    /**
+     * The pools peak at different times, so the sum is an upper bound of the peak usage of the heap
+     *
+     * @return - sum of the peak usage of the heap memory pools since the start
+     */
+    private long getSumOfHeapPoolPeaks() {
+        long peak = 0;
+        for (final MemoryPoolMXBean pool : this.heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
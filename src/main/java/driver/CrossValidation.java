@@ -0,0 +1,179 @@
+package driver;
+
+import classifier.Classifier;
+import classifier.Results;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Evaluates a classifier by k-fold cross validation or by repeated holdout. The data set is loaded once and
+ * every fold or holdout is trained and tested on the executor with a split of its own, drawn by a Splitter
+ * from the seed, so an evaluation can be repeated exactly.
+ */
+public class CrossValidation {
+
+    private final PreprocessedData data;
+    private final Supplier<? extends Classifier> classifiers;
+    private final ForkJoinPool executor;
+    private final long seed;
+    private boolean stratified;
+    private Listener listener;
+
+    /**
+     * @param data        - data set to evaluate on, its own split is not used
+     * @param classifiers - creates an untrained classifier for every fold or holdout
+     * @param executor    - runs the folds or holdouts, a fork/join pool so that an evaluation run in a task of the pool
+     *                    forks its folds rather than blocking a worker
+     * @param seed        - seed of the random splits
+     */
+    public CrossValidation(final PreprocessedData data, final Supplier<? extends Classifier> classifiers,
+                           final ForkJoinPool executor, final long seed) {
+        this.data = data;
+        this.classifiers = classifiers;
+        this.executor = executor;
+        this.seed = seed;
+    }
+
+    /**
+     * When set, every fold or holdout keeps the label proportions of the data set
+     *
+     * @param stratified
+     */
+    public void setStratified(final boolean stratified) {
+        this.stratified = stratified;
+    }
+
+    /**
+     * @param listener - notified as each fold or holdout finishes, on the thread that ran it
+     */
+    public void setListener(final Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Shuffles the rows once and tests on each of k equally sized folds after training on the others
+     *
+     * @param folds
+     * @return
+     */
+    public Evaluation kFold(final int folds) {
+        final int numberOfRows = this.data.getDataMatrix().getNumberOfRows();
+        if (folds < 2 || folds > numberOfRows) {
+            throw new IllegalArgumentException("Cannot split " + numberOfRows + " rows into " + folds + " folds");
+        }
+        final List<Callable<Results>> runs = Lists.newArrayList();
+        final Splitter.Split[] splits = new Splitter(this.seed, this.stratified).folds(this.data.getDataMatrix(), folds);
+        for (int fold = 0; fold < folds; fold++) {
+            runs.add(run(fold, splits[fold]));
+        }
+        return evaluate(runs);
+    }
+
+    /**
+     * Trains and tests on a new random split for every repetition
+     *
+     * @param repetitions
+     * @param trainingSplitPercentage - fraction of the rows to train on
+     * @return
+     */
+    public Evaluation repeatedHoldout(final int repetitions, final double trainingSplitPercentage) {
+        if (repetitions < 1 || !(trainingSplitPercentage > 0.0 && trainingSplitPercentage < 1.0)) {
+            throw new IllegalArgumentException("Cannot run " + repetitions + " holdouts training on " + trainingSplitPercentage);
+        }
+        final Splitter splitter = new Splitter(this.seed, this.stratified);
+        final List<Callable<Results>> runs = Lists.newArrayList();
+        for (int repetition = 0; repetition < repetitions; repetition++) {
+            runs.add(run(repetition, splitter.holdout(this.data.getDataMatrix(), trainingSplitPercentage)));
+        }
+        return evaluate(runs);
+    }
+
+    private Callable<Results> run(final int run, final Splitter.Split split) {
+        return () -> {
+            final PreprocessedData data = this.data.withSplit(split);
+            final Classifier classifier = this.classifiers.get();
+            classifier.train(data);
+            classifier.test(data);
+            if (this.listener != null) {
+                this.listener.runFinished(run, classifier.getResults());
+            }
+            return classifier.getResults();
+        };
+    }
+
+    private Evaluation evaluate(final List<Callable<Results>> runs) {
+        // forked rather than submitted when the evaluation itself runs in a task of the pool
+        return new Evaluation(ForkJoinTasks.invokeAll(this.executor, runs));
+    }
+
+    /**
+     * Receives the results of the folds or holdouts in the order they finish
+     */
+    public interface Listener {
+
+        /**
+         * @param run     - index of the fold or holdout
+         * @param results
+         */
+        void runFinished(int run, Results results);
+    }
+
+    /**
+     * Results of every fold or holdout and their aggregate
+     */
+    public static class Evaluation {
+
+        private final List<Results> runResults;
+        private final Results results;
+
+        private Evaluation(final List<Results> runResults) {
+            this.runResults = Collections.unmodifiableList(runResults);
+            this.results = new Results(runResults.get(0).getLabels());
+            for (final Results run : runResults) {
+                this.results.merge(run);
+            }
+        }
+
+        /**
+         * @return - predictions of all runs in one confusion matrix
+         */
+        public Results getResults() {
+            return this.results;
+        }
+
+        /**
+         * @return - results of each fold or holdout in order
+         */
+        public List<Results> getRunResults() {
+            return this.runResults;
+        }
+
+        public double getMeanAccuracy() {
+            double sum = 0.0;
+            for (final Results run : this.runResults) {
+                sum += run.getAccuracy();
+            }
+            return sum / this.runResults.size();
+        }
+
+        /**
+         * @return - sample standard deviation of the accuracies of the runs, 0 for a single run
+         */
+        public double getStandardDeviationOfAccuracy() {
+            if (this.runResults.size() < 2) {
+                return 0.0;
+            }
+            final double mean = getMeanAccuracy();
+            double sum = 0.0;
+            for (final Results run : this.runResults) {
+                sum += (run.getAccuracy() - mean) * (run.getAccuracy() - mean);
+            }
+            return Math.sqrt(sum / (this.runResults.size() - 1));
+        }
+    }
+}
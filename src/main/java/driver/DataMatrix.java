@@ -0,0 +1,541 @@
+package driver;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Column oriented, primitive typed view of a data set.
+ * Continuous attributes are held as double columns, discrete attributes and the target
+ * are dictionary encoded into int columns. Dictionary codes follow the ascending order of the values,
+ * so iterating codes visits values in the same order as a sorted set of the strings would.
+ * Subsets of the data set are expressed as arrays of row indices.
+ */
+public class DataMatrix {
+
+    private final Attribute[] attributes;
+    private final int targetColumn;
+    private final int numberOfRows;
+    private final double[][] continuousColumns; // null for discrete columns
+    private final int[][] discreteColumns; // null for continuous columns
+    private final String[][] dictionaries; // null for continuous columns
+    private final HashMap<String, Integer> columnIndex = Maps.newHashMap();
+
+    private DataMatrix(final Attribute[] attributes, final int targetColumn, final int numberOfRows,
+                       final double[][] continuousColumns, final int[][] discreteColumns, final String[][] dictionaries) {
+        this.attributes = attributes;
+        this.targetColumn = targetColumn;
+        this.numberOfRows = numberOfRows;
+        this.continuousColumns = continuousColumns;
+        this.discreteColumns = discreteColumns;
+        this.dictionaries = dictionaries;
+        for (int column = 0; column < attributes.length; column++) {
+            this.columnIndex.put(attributes[column].getName(), column);
+        }
+    }
+
+    /**
+     * Creates a data matrix from filled columns.
+     * Dictionary codes may follow any order, they are re-coded to follow the ascending order of the values.
+     *
+     * @param attributes        - attributes in column order
+     * @param targetColumn
+     * @param continuousColumns - values of continuous columns, null for discrete columns
+     * @param discreteColumns   - codes of discrete columns, null for continuous columns
+     * @param dictionaries      - value of each code of discrete columns, null for continuous columns
+     * @return
+     */
+    public static DataMatrix of(final Attribute[] attributes, final int targetColumn, final double[][] continuousColumns,
+                                final int[][] discreteColumns, final String[][] dictionaries) {
+        int numberOfRows = 0;
+        for (int column = 0; column < attributes.length; column++) {
+            if (continuousColumns[column] == null) {
+                dictionaries[column] = sortDictionary(discreteColumns[column], dictionaries[column]);
+                numberOfRows = discreteColumns[column].length;
+            } else {
+                numberOfRows = continuousColumns[column].length;
+            }
+        }
+        attributes[targetColumn].setAsTarget();
+        return new DataMatrix(attributes, targetColumn, numberOfRows, continuousColumns, discreteColumns, dictionaries);
+    }
+
+    /**
+     * Re-codes a column in place so that codes follow the ascending order of the values
+     *
+     * @param codes
+     * @param dictionary - value of each code
+     * @return - sorted dictionary
+     */
+    private static String[] sortDictionary(final int[] codes, final String[] dictionary) {
+        if (isSorted(dictionary)) {
+            return dictionary;
+        }
+        final Integer[] order = new Integer[dictionary.length];
+        for (int code = 0; code < order.length; code++) {
+            order[code] = code;
+        }
+        Arrays.sort(order, (a, b) -> dictionary[a].compareTo(dictionary[b]));
+        final String[] values = new String[dictionary.length];
+        final int[] recode = new int[dictionary.length];
+        for (int code = 0; code < order.length; code++) {
+            values[code] = dictionary[order[code]];
+            recode[order[code]] = code;
+        }
+        for (int row = 0; row < codes.length; row++) {
+            codes[row] = recode[codes[row]];
+        }
+        return values;
+    }
+
+    private static boolean isSorted(final String[] dictionary) {
+        for (int code = 1; code < dictionary.length; code++) {
+            if (dictionary[code - 1].compareTo(dictionary[code]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Formats a numeric value the way it would usually appear in a data file,
+     * whole numbers are printed without a fraction part.
+     *
+     * @param value
+     * @return
+     */
+    public static String formatNumber(final double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Checks without throwing whether Double.parseDouble accepts the value:
+     * surrounding whitespace, a sign, NaN, Infinity, decimal and hexadecimal notation and a float or double suffix.
+     *
+     * @param value
+     * @return
+     */
+    public static boolean isNumber(final CharSequence value) {
+        int from = 0;
+        int to = value.length();
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        int position = from;
+        if (position < to && (value.charAt(position) == '+' || value.charAt(position) == '-')) {
+            position++;
+        }
+        if (matches(value, position, to, "NaN") || matches(value, position, to, "Infinity")) {
+            return true;
+        }
+        final boolean hexadecimal = to - position > 2 && value.charAt(position) == '0' &&
+                (value.charAt(position + 1) == 'x' || value.charAt(position + 1) == 'X');
+        if (hexadecimal) {
+            position += 2;
+        }
+        // significand
+        int digits = 0;
+        while (position < to && isDigit(value.charAt(position), hexadecimal)) {
+            position++;
+            digits++;
+        }
+        if (position < to && value.charAt(position) == '.') {
+            position++;
+            while (position < to && isDigit(value.charAt(position), hexadecimal)) {
+                position++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        // exponent, required in hexadecimal notation
+        final boolean exponent = position < to && (hexadecimal ?
+                value.charAt(position) == 'p' || value.charAt(position) == 'P' :
+                value.charAt(position) == 'e' || value.charAt(position) == 'E');
+        if (exponent) {
+            position++;
+            if (position < to && (value.charAt(position) == '+' || value.charAt(position) == '-')) {
+                position++;
+            }
+            final int exponentStart = position;
+            while (position < to && isDigit(value.charAt(position), false)) {
+                position++;
+            }
+            if (position == exponentStart) {
+                return false;
+            }
+        } else if (hexadecimal) {
+            return false;
+        }
+        // type suffix
+        if (position < to && "fFdD".indexOf(value.charAt(position)) >= 0) {
+            position++;
+        }
+        return position == to;
+    }
+
+    private static boolean matches(final CharSequence value, final int from, final int to, final String word) {
+        if (to - from != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (value.charAt(from + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(final char c, final boolean hexadecimal) {
+        return c >= '0' && c <= '9' || hexadecimal && (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F');
+    }
+
+    public int getNumberOfRows() {
+        return this.numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return this.attributes.length;
+    }
+
+    public Attribute getAttribute(final int column) {
+        return this.attributes[column];
+    }
+
+    /**
+     * @param name - attribute name
+     * @return - column index of the attribute or -1 if there is no such attribute
+     */
+    public int getColumnIndex(final String name) {
+        final Integer column = this.columnIndex.get(name);
+        return column == null ? -1 : column;
+    }
+
+    public int getTargetColumn() {
+        return this.targetColumn;
+    }
+
+    /**
+     * @param column
+     * @return - true if the column is held as doubles, false if it is dictionary encoded
+     */
+    public boolean isContinuous(final int column) {
+        return this.continuousColumns[column] != null;
+    }
+
+    public double[] getContinuousColumn(final int column) {
+        return this.continuousColumns[column];
+    }
+
+    public int[] getDiscreteColumn(final int column) {
+        return this.discreteColumns[column];
+    }
+
+    public String[] getDictionary(final int column) {
+        return this.dictionaries[column];
+    }
+
+    public int[] getLabels() {
+        return this.discreteColumns[this.targetColumn];
+    }
+
+    public String[] getLabelDictionary() {
+        return this.dictionaries[this.targetColumn];
+    }
+
+    public int getNumberOfLabels() {
+        return this.dictionaries[this.targetColumn].length;
+    }
+
+    /**
+     * @return - indices of all rows in ascending order
+     */
+    public int[] getAllRows() {
+        final int[] rows = new int[this.numberOfRows];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Accumulates rows of string values into typed column buffers.
+     * Buffers grow in fixed size chunks, so appending never copies the rows read so far.
+     * Attribute types are either declared up front or inferred on the fly: a column stays continuous
+     * while all of its values parse as numbers (blanks are kept as missing values) and is dictionary encoded
+     * from the first value that does not. The target column is always dictionary encoded.
+     * While types are inferred, the text of numbers that formatNumber would not restore, such as 1.50 or 02134,
+     * is kept as well, so a column turning discrete is encoded from the values as they appear in the file.
+     */
+    public static class Builder {
+
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        private final String[] names;
+        private final Attribute[] attributes; // null when types are inferred
+        private final int targetColumn;
+        private final Column[] columns;
+        private int numberOfRows;
+
+        /**
+         * Creates a builder for columns of declared types
+         *
+         * @param attributes   - attributes in column order
+         * @param targetColumn
+         */
+        public Builder(final List<Attribute> attributes, final int targetColumn) {
+            this(namesOf(attributes), attributes.toArray(new Attribute[attributes.size()]), targetColumn);
+        }
+
+        /**
+         * Creates a builder that infers the types of the columns from their values
+         *
+         * @param attributeNames - attribute names in column order
+         * @param targetColumn
+         * @return
+         */
+        public static Builder inferringTypes(final List<String> attributeNames, final int targetColumn) {
+            return new Builder(attributeNames.toArray(new String[attributeNames.size()]), null, targetColumn);
+        }
+
+        private Builder(final String[] names, final Attribute[] attributes, final int targetColumn) {
+            this.names = names;
+            this.attributes = attributes;
+            this.targetColumn = targetColumn;
+            this.columns = new Column[names.length];
+            for (int column = 0; column < names.length; column++) {
+                // without a declared type every column starts as continuous
+                this.columns[column] = new Column(column != targetColumn && (attributes == null || attributes[column].isContinuous()),
+                        attributes == null);
+            }
+        }
+
+        private static String[] namesOf(final List<Attribute> attributes) {
+            final String[] names = new String[attributes.size()];
+            for (int column = 0; column < names.length; column++) {
+                names[column] = attributes.get(column).getName();
+            }
+            return names;
+        }
+
+        /**
+         * Appends a row, values are expected in column order.
+         * Values missing at the end of the row are treated as blanks, surplus values are ignored.
+         *
+         * @param values
+         */
+        public void addRow(final Iterable<String> values) {
+            final int offset = this.numberOfRows % CHUNK_SIZE;
+            if (offset == 0) {
+                addChunks();
+            }
+            final Iterator<String> iterator = values.iterator();
+            for (int column = 0; column < this.names.length; column++) {
+                final String value = iterator.hasNext() ? iterator.next() : "";
+                final Column buffer = this.columns[column];
+                if (buffer.isContinuous()) {
+                    final double number = parseNumber(column, value);
+                    if (buffer.isContinuous()) {
+                        last(buffer.numbers)[offset] = number;
+                        if (buffer.texts != null && !isRestored(value, number)) {
+                            buffer.setText(this.numberOfRows, value);
+                        }
+                        continue;
+                    }
+                }
+                last(buffer.codes)[offset] = buffer.encode(value);
+            }
+            this.numberOfRows++;
+        }
+
+        /**
+         * Parses a value of a continuous column.
+         * When types are inferred, a value that is not a number turns the column discrete.
+         *
+         * @param column
+         * @param value
+         * @return
+         */
+        private double parseNumber(final int column, final String value) {
+            // blank values of continuous attributes are kept as missing
+            if (value.trim().isEmpty()) {
+                return Double.NaN;
+            }
+            if (isNumber(value)) {
+                // adding zero folds -0.0 into 0.0 so that sorting agrees with <= comparisons
+                return Double.parseDouble(value) + 0.0;
+            }
+            if (this.attributes != null) {
+                throw new NumberFormatException("Value \"" + value + "\" of continuous attribute " + this.names[column] + " is not a number");
+            }
+            this.columns[column].toDiscrete(this.numberOfRows);
+            return Double.NaN;
+        }
+
+        /**
+         * @param text
+         * @param number - value parsed from the text
+         * @return - true if formatNumber gives back the text, whole numbers of up to 15 digits are checked without formatting
+         */
+        private static boolean isRestored(final String text, final double number) {
+            if (Double.isNaN(number)) {
+                return text.isEmpty();
+            }
+            final int start = text.startsWith("-") ? 1 : 0;
+            boolean plain = text.length() - start <= 15 && text.length() > start &&
+                    (text.charAt(start) != '0' || text.length() == 1);
+            for (int i = start; plain && i < text.length(); i++) {
+                plain = text.charAt(i) >= '0' && text.charAt(i) <= '9';
+            }
+            return plain || text.equals(formatNumber(number));
+        }
+
+        private void addChunks() {
+            for (final Column column : this.columns) {
+                column.addChunk();
+            }
+        }
+
+        private static <T> T last(final List<T> chunks) {
+            return chunks.get(chunks.size() - 1);
+        }
+
+        public int getNumberOfRows() {
+            return this.numberOfRows;
+        }
+
+        /**
+         * Joins the chunks into columns and re-codes dictionaries so that codes follow the ascending order of values.
+         * Chunks are released column by column, so the rows are held twice for a single column at most.
+         *
+         * @return
+         */
+        public DataMatrix build() {
+            final int numberOfColumns = this.names.length;
+            final Attribute[] attributes = new Attribute[numberOfColumns];
+            final double[][] continuousColumns = new double[numberOfColumns][];
+            final int[][] discreteColumns = new int[numberOfColumns][];
+            final String[][] dictionaries = new String[numberOfColumns][];
+            for (int column = 0; column < numberOfColumns; column++) {
+                final Column buffer = this.columns[column];
+                attributes[column] = this.attributes != null ?
+                        this.attributes[column] :
+                        new Attribute(this.names[column], buffer.isContinuous());
+                if (buffer.isContinuous()) {
+                    final double[] values = new double[this.numberOfRows];
+                    for (int chunk = 0; chunk * CHUNK_SIZE < this.numberOfRows; chunk++) {
+                        System.arraycopy(buffer.numbers.get(chunk), 0, values, chunk * CHUNK_SIZE,
+                                Math.min(CHUNK_SIZE, this.numberOfRows - chunk * CHUNK_SIZE));
+                    }
+                    this.columns[column] = null;
+                    continuousColumns[column] = values;
+                    continue;
+                }
+                final int[] codes = new int[this.numberOfRows];
+                for (int row = 0; row < codes.length; row++) {
+                    codes[row] = buffer.codes.get(row / CHUNK_SIZE)[row % CHUNK_SIZE];
+                }
+                this.columns[column] = null;
+                final String[] values = new String[buffer.dictionary.size()];
+                buffer.dictionary.forEach((value, code) -> values[code] = value);
+                discreteColumns[column] = codes;
+                dictionaries[column] = values;
+            }
+            return of(attributes, this.targetColumn, continuousColumns, discreteColumns, dictionaries);
+        }
+
+        /**
+         * Chunks of a column: numbers while it is continuous, dictionary codes once it is discrete
+         */
+        private static final class Column {
+
+            private List<double[]> numbers;
+            // text of the numbers formatNumber would not restore by chunk, a chunk is null until it holds one
+            private List<String[]> texts;
+            private List<int[]> codes;
+            private HashMap<String, Integer> dictionary;
+
+            /**
+             * @param continuous
+             * @param keepTexts  - true to keep the text of numbers while the type of the column is not settled
+             */
+            private Column(final boolean continuous, final boolean keepTexts) {
+                if (continuous) {
+                    this.numbers = Lists.newArrayList();
+                    this.texts = keepTexts ? Lists.newArrayList() : null;
+                } else {
+                    this.codes = Lists.newArrayList();
+                    this.dictionary = Maps.newHashMap();
+                }
+            }
+
+            private boolean isContinuous() {
+                return this.numbers != null;
+            }
+
+            private void addChunk() {
+                if (isContinuous()) {
+                    this.numbers.add(new double[CHUNK_SIZE]);
+                    if (this.texts != null) {
+                        this.texts.add(null);
+                    }
+                } else {
+                    this.codes.add(new int[CHUNK_SIZE]);
+                }
+            }
+
+            private void setText(final int row, final String text) {
+                if (this.texts.get(row / CHUNK_SIZE) == null) {
+                    this.texts.set(row / CHUNK_SIZE, new String[CHUNK_SIZE]);
+                }
+                this.texts.get(row / CHUNK_SIZE)[row % CHUNK_SIZE] = text;
+            }
+
+            private int encode(final String value) {
+                Integer code = this.dictionary.get(value);
+                if (code == null) {
+                    code = this.dictionary.size();
+                    this.dictionary.put(value, code);
+                }
+                return code;
+            }
+
+            /**
+             * Dictionary encodes the values read so far, from their text where it was kept
+             *
+             * @param numberOfRows - rows read so far, the row being added is encoded by the caller
+             */
+            private void toDiscrete(final int numberOfRows) {
+                this.dictionary = Maps.newHashMap();
+                this.codes = Lists.newArrayList();
+                for (int chunk = 0; chunk < this.numbers.size(); chunk++) {
+                    final double[] numbers = this.numbers.get(chunk);
+                    final String[] texts = this.texts.get(chunk);
+                    final int[] codes = new int[CHUNK_SIZE];
+                    final int rows = Math.min(CHUNK_SIZE, numberOfRows - chunk * CHUNK_SIZE);
+                    for (int offset = 0; offset < rows; offset++) {
+                        if (texts != null && texts[offset] != null) {
+                            codes[offset] = encode(texts[offset]);
+                        } else {
+                            codes[offset] = encode(Double.isNaN(numbers[offset]) ? "" : formatNumber(numbers[offset]));
+                        }
+                    }
+                    this.codes.add(codes);
+                }
+                this.numbers = null;
+                this.texts = null;
+            }
+        }
+    }
+}
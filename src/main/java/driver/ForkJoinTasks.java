@@ -0,0 +1,84 @@
+package driver;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs tasks on a fork/join pool without blocking a worker of the pool. Called from a fork/join worker,
+ * as when a fold of a cross validation grows its trees, the tasks are forked and a worker waiting on them runs them itself.
+ * Otherwise they are submitted to the pool.
+ */
+public final class ForkJoinTasks {
+
+    private ForkJoinTasks() {
+    }
+
+    /**
+     * Runs the tasks in parallel and waits for all of them. Unchecked exceptions of the tasks are rethrown as thrown,
+     * checked ones wrapped in a RuntimeException.
+     *
+     * @param pool  - pool the tasks are submitted to when not called from a fork/join worker
+     * @param tasks
+     * @return - result of each task in order
+     */
+    public static <T> List<T> invokeAll(final ForkJoinPool pool, final List<? extends Callable<T>> tasks) {
+        final List<T> results = Lists.newArrayList();
+        if (ForkJoinTask.inForkJoinPool()) {
+            final List<CallableTask<T>> forkedTasks = Lists.newArrayList();
+            tasks.forEach(task -> forkedTasks.add(new CallableTask<>(task)));
+            ForkJoinTask.invokeAll(forkedTasks);
+            for (final CallableTask<T> task : forkedTasks) {
+                if (task.failure != null) {
+                    throw Throwables.propagate(task.failure);
+                }
+                results.add(task.join());
+            }
+            return results;
+        }
+        try {
+            for (final Future<T> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        } catch (final ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Keeps the exception of its callable, joining would rethrow a copy which may lose the message
+     */
+    private static final class CallableTask<T> extends RecursiveTask<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Callable<T> callable;
+        private Exception failure;
+
+        private CallableTask(final Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        protected T compute() {
+            try {
+                return this.callable.call();
+            } catch (final Exception e) {
+                this.failure = e;
+                return null;
+            }
+        }
+    }
+}
@@ -2,33 +2,84 @@ package driver;
 
 import classifier.Classifier;
 import classifier.Results;
+import decisionTree.InductionOptions;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 
 /**
  * This class is used to interact with the C4.5 algorithm from the GUI.
  * It provides methods that allow the GUI to specify the training split percentage,
  * the dataset to use and retrieve the results of the algorithm.
+ * The evaluations run on a pool of the driver, which close shuts down.
  *
  * Created by jamesfallon on 21/11/2016.
  */
-public class GUIDriver {
+public class GUIDriver implements AutoCloseable {
 
     private PreprocessedData ppd;
     private double trainingSplitPercentage;
-    private Classifier classifier;
+    private final Function<InductionOptions, ? extends Classifier> classifiers;
+    // runs the evaluations and nothing else, so it is quiet once every task of an evaluation has ended
+    private final ForkJoinPool pool = new ForkJoinPool();
+    private Results results;
+    private volatile InductionOptions options = new InductionOptions();
 
-    public GUIDriver(double trainingSplitPercentage, Classifier classifier) {
+    /**
+     * @param trainingSplitPercentage
+     * @param classifiers             - creates an untrained classifier with the given options, called for every tree to create
+     */
+    public GUIDriver(double trainingSplitPercentage, Function<InductionOptions, ? extends Classifier> classifiers) {
         this.trainingSplitPercentage = trainingSplitPercentage;
-        this.classifier = classifier;
+        this.classifiers = classifiers;
+    }
+
+    /**
+     * Trains and tests a classifier on a new random split of the dataset for every repetition,
+     * the repetitions run in parallel. The evaluation can be stopped by cancel, it then ends with a CancellationException
+     * even if every repetition was past its training when cancelled. Returns, or throws, only once all of its tasks have ended.
+     *
+     * @param repetitions
+     * @param listener    - notified as each repetition finishes
+     * @return
+     */
+    public CrossValidation.Evaluation evaluate(int repetitions, CrossValidation.Listener listener) {
+        InductionOptions options = new InductionOptions();
+        options.setExecutor(pool);
+        this.options = options;
+        CrossValidation crossValidation = new CrossValidation(ppd, () -> classifiers.apply(options), pool, ThreadLocalRandom.current().nextLong());
+        crossValidation.setListener(listener);
+        try {
+            CrossValidation.Evaluation evaluation = crossValidation.repeatedHoldout(repetitions, trainingSplitPercentage);
+            // repetitions past their training when cancelled still test and return normally
+            if (options.isCancelled()) {
+                throw new CancellationException("Evaluation cancelled");
+            }
+            results = evaluation.getResults();
+            return evaluation;
+        } finally {
+            // a cancelled run may return while subtrees it forked still wind down
+            pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
     }
 
-    public void test() {
-        classifier.test(ppd);
+    /**
+     * Stops the running evaluation, it ends with a CancellationException
+     */
+    public void cancel() {
+        options.cancel();
     }
 
-    public void train() {
-        ppd.splitTrainingTestPercentage(trainingSplitPercentage);
-        classifier.train(ppd);
+    /**
+     * Shuts down the pool of the evaluations, the driver can not evaluate afterwards
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
     }
 
     public PreprocessedData getPpd() {
@@ -47,8 +98,11 @@ public class GUIDriver {
         this.trainingSplitPercentage = trainingSplitPercentage;
     }
 
+    /**
+     * @return - results of the last test, or all predictions of the last evaluation
+     */
     public Results getResults() {
-        return classifier.getResults();
+        return results;
     }
 
 }
@@ -1,64 +1,46 @@
 package driver;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import org.apache.commons.csv.CSVRecord;
-
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
 /**
  * Created by Suavek on 11/11/2016.
  */
 public class Gain {
 
     private Attribute attribute;
+    private int column = -1;
     private double entropyA;
     private double entropyB;
     private double entropyAB;
     private String value;
+    private double threshold;
     private double informationGain;
-    HashMap<String, Double> occurrenceA = Maps.newHashMap();
-    HashMap<String, Double> occurrenceB = Maps.newHashMap();
-    List<CSVRecord> recordsBelowEqualThreshold;
-    List<CSVRecord> recordsAboveThreshold;
-
-    List<List<CSVRecord>> subsets = Lists.newArrayList();
-    Map<String, List<CSVRecord>> subsetsDiscrete;
-    Map<String, Map> occurrencesOfLabelsInSubsets;
-    Map subsetsEntropy;
+    // occurrences of each label code below/equal and above the threshold
+    int[] occurrenceA;
+    int[] occurrenceB;
 
+    // occurrences of each label code for every value code of a discrete attribute
+    int[][] occurrencesOfLabelsInSubsets;
+    double[] subsetsEntropy;
 
-    public Map getSubsetsDiscrete() {
-        return this.subsetsDiscrete;
-    }
-
-    public Gain(final Attribute attribute, final double entropyA, final double entropyB, final String threshold, final double gain, final HashMap a, final HashMap b, final List indexListA, final List indexListB, double targetEntr) {
+    public Gain(final Attribute attribute, final int column, final double entropyA, final double entropyB, final double threshold, final double gain, final int[] a, final int[] b, double targetEntr) {
         this.attribute = attribute;
+        this.column = column;
         this.entropyA = entropyA;
         this.entropyB = entropyB;
-        this.value = threshold;
+        this.threshold = threshold;
+        this.value = DataMatrix.formatNumber(threshold);
         this.informationGain = gain;
         this.occurrenceA = a;
         this.occurrenceB = b;
-        this.recordsBelowEqualThreshold = indexListA;
-        this.recordsAboveThreshold = indexListB;
-        this.subsets.add(indexListA);
-        this.subsets.add(indexListB);
         this.entropyAB = targetEntr;
     }
 
     public Gain() {
     }
 
-    public Gain(Attribute attribute, double[] gain, Map<String, List<CSVRecord>> subsets, Map<String, Map> occurrencesOfLabelsInSubsets, Map subsetsEntropy) {
+    public Gain(Attribute attribute, int column, double gain, int[][] occurrencesOfLabelsInSubsets, double[] subsetsEntropy) {
         this.attribute = attribute;
-        this.informationGain = gain[0];
-        this.subsetsDiscrete = subsets;
+        this.column = column;
+        this.informationGain = gain;
         this.occurrencesOfLabelsInSubsets = occurrencesOfLabelsInSubsets;
         this.subsetsEntropy = subsetsEntropy;
     }
@@ -69,18 +51,16 @@ public class Gain {
      * The Gain object holds information on labels occurrences in two subsets
      * and this method extract most occurring value in both both
      *
-     * @return
+     * @return - code of the label, the lowest code wins ties
      */
-    public String getMostOccurringLabel() {
-        // concatenate two maps by summing values of duplicate keys
-        final Map<String, Double> mergedMaps = Stream.concat(occurrenceA.entrySet().stream(), occurrenceB.entrySet().stream())
-                .collect(Collectors.toMap(
-                        entry -> entry.getKey(), // key
-                        entry -> entry.getValue(), // value
-                        (occurrenceA, occurrenceB) -> occurrenceA + occurrenceB) // merge
-                );
-        // return key (label) of the biggest value in the map
-        return Collections.max(mergedMaps.entrySet(), Map.Entry.comparingByValue()).getKey();
+    public int getMostOccurringLabel() {
+        int mostOccurring = 0;
+        for (int label = 1; label < occurrenceA.length; label++) {
+            if (occurrenceA[label] + occurrenceB[label] > occurrenceA[mostOccurring] + occurrenceB[mostOccurring]) {
+                mostOccurring = label;
+            }
+        }
+        return mostOccurring;
     }
 
     public double getGain() {
@@ -103,6 +83,10 @@ public class Gain {
         return value;
     }
 
+    public double getThreshold() {
+        return threshold;
+    }
+
     public String getAttributeName() {
         return attribute.getName();
     }
@@ -111,16 +95,44 @@ public class Gain {
         return attribute;
     }
 
-    public List getLeftSubset() {
-        return recordsBelowEqualThreshold;
+    public int getColumn() {
+        return column;
+    }
+
+    public int[] getLeftOccurrences() {
+        return occurrenceA;
     }
 
-    public List getRightSubset() {
-        return recordsAboveThreshold;
+    public int[] getRightOccurrences() {
+        return occurrenceB;
+    }
+
+    public int[][] getOccurrencesOfLabelsInSubsets() {
+        return occurrencesOfLabelsInSubsets;
+    }
+
+    /**
+     * @return - number of examples below or equal to the threshold
+     */
+    public int getLeftSize() {
+        return sum(occurrenceA);
+    }
+
+    /**
+     * @return - number of examples above the threshold
+     */
+    public int getRightSize() {
+        return sum(occurrenceB);
     }
 
-    public List getSubsets() {
-        return subsets;
+    static int sum(final int[] occurrences) {
+        int sum = 0;
+        if (occurrences != null) {
+            for (final int occurrence : occurrences) {
+                sum += occurrence;
+            }
+        }
+        return sum;
     }
 
 
@@ -2,12 +2,17 @@ package driver;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import dataReader.BinaryDataReader;
 import dataReader.CSVReader;
-import org.apache.commons.csv.CSVRecord;
+import dataReader.DataReader;
+import dataReader.MappedCSVReader;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -15,98 +20,151 @@ import java.util.concurrent.ThreadLocalRandom;
  */
 public class PreprocessedData {
 
-    private final CSVReader data;
     private ArrayList<String> attributeNames = Lists.newArrayList();
     private final String targetName;
     final HashMap<String, Attribute> attributes = Maps.newHashMap();
 
-    List trainingSet = Lists.newArrayList();
-    List testingSet = Lists.newArrayList();
+    private final DataMatrix dataMatrix;
+
+    int[] trainingRows = new int[0];
+    int[] testingRows = new int[0];
 
     public PreprocessedData(final String filePath) throws Exception {
-        // currently supporting csv format only
-        if (filePath.toLowerCase().endsWith(".csv")) {
-            this.data = new CSVReader(filePath);
-        } else {
-            throw new Exception("Data Format not supported");
-        }
+        this(filePath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param filePath
+     * @param pool     - pool reading csv files concurrently, null to read on the calling thread
+     * @throws Exception
+     */
+    public PreprocessedData(final String filePath, final ForkJoinPool pool) throws Exception {
+        this(createReader(filePath, null, pool));
+    }
+
+    /**
+     * @param filePath
+     * @param attributes - declared attributes in column order, the types are not inferred from the data
+     * @throws Exception
+     */
+    public PreprocessedData(final String filePath, final List<Attribute> attributes) throws Exception {
+        this(filePath, attributes, ForkJoinPool.commonPool());
+    }
 
+    /**
+     * @param filePath
+     * @param attributes - declared attributes in column order, the types are not inferred from the data
+     * @param pool       - pool reading csv files concurrently, null to read on the calling thread
+     * @throws Exception
+     */
+    public PreprocessedData(final String filePath, final List<Attribute> attributes, final ForkJoinPool pool) throws Exception {
+        this(createReader(filePath, attributes, pool));
+    }
+
+    /**
+     * @param data - reader which has loaded the data set
+     */
+    public PreprocessedData(final DataReader data) {
         // get attribute names
-        this.attributeNames = this.data.getAttributeNames();
-        // for each create an Attribute object and place in the map
-        this.attributeNames.forEach(attributeName ->
-                attributes.put(
-                        attributeName,
-                        createAttribute(this.data.getDataSet(), attributeName)
-                )
-        );
+        this.attributeNames = data.getAttributeNames();
+        // typed columns, attribute types are inferred by the reader
+        this.dataMatrix = data.getDataMatrix();
+        // place the Attribute object of each column in the map
+        for (int column = 0; column < this.dataMatrix.getNumberOfColumns(); column++) {
+            this.attributes.put(this.attributeNames.get(column), this.dataMatrix.getAttribute(column));
+        }
         // get target name, assuming position in last column
-        this.targetName = attributeNames.get(attributeNames.size() - 1);
-        // set the target
-        this.attributes.get(targetName).setAsTarget();
+        this.targetName = attributeNames.get(this.dataMatrix.getTargetColumn());
     }
 
-    //http://www.saedsayad.com/decision_tree.htm
-
     /**
-     * Method creates and returns an Attribute object with assigned type :
-     * All records of an attribute are tested towards converting to a Double
-     * If exception occurs then it indicates that Attribute consists of discrete values
-     * therefore is not continuous
-     *
-     * @param dataRecords
-     * @param attributeName
-     * @return
+     * @param data         - loaded data set to share
+     * @param trainingRows - indices of the training rows in the data matrix
+     * @param testingRows  - indices of the testing rows in the data matrix
      */
-    public static Attribute createAttribute(final Iterable<CSVRecord> dataRecords, final String attributeName) {
-        // Check if attribute is continuous
-        boolean isContinuous = true;
-        for (final CSVRecord record : dataRecords) {
-            try {
-                final String value = record.get(attributeName);
-                if (!value.trim().equals("")) {
-                    Double.parseDouble(record.get(attributeName));
-                }
-            } catch (final NumberFormatException e) {
-                isContinuous = false;
-                return new Attribute(attributeName, isContinuous);
-            }
+    private PreprocessedData(final PreprocessedData data, final int[] trainingRows, final int[] testingRows) {
+        this.attributeNames = data.attributeNames;
+        this.dataMatrix = data.dataMatrix;
+        this.attributes.putAll(data.attributes);
+        this.targetName = data.targetName;
+        this.trainingRows = trainingRows;
+        this.testingRows = testingRows;
+    }
+
+    private static DataReader createReader(final String filePath, final List<Attribute> attributes, final ForkJoinPool pool) throws Exception {
+        // csv files are read in parallel on the given pool, binary data sets come with their attribute types
+        if (filePath.toLowerCase().endsWith(".csv")) {
+            // named pipes and other files that cannot be mapped are parsed as their records arrive
+            return Files.isRegularFile(Paths.get(filePath)) ?
+                    new MappedCSVReader(filePath, attributes, pool) : new CSVReader(filePath, attributes);
+        }
+        if (filePath.toLowerCase().endsWith(BinaryDataReader.EXTENSION) && attributes == null) {
+            return new BinaryDataReader(filePath);
         }
-        return new Attribute(attributeName, isContinuous);
+        throw new Exception("Data Format not supported");
     }
 
+    //http://www.saedsayad.com/decision_tree.htm
+
     /**
      * Method splits the data set into 2 subsets of random values by percentage given as parameter
      *
      * @param splitPercent
      */
     public void splitTrainingTestPercentage(double splitPercent) {
-        int numberOfTrainingSamples = (int) Math.ceil(getDataSet().size() * splitPercent);
-        int numberOfTestingSamples = getDataSet().size() - numberOfTrainingSamples;
+        splitTrainingTestPercentage(splitPercent, new Splitter(ThreadLocalRandom.current().nextLong(), false));
+    }
 
-        List instancesLocalSet = Lists.newArrayList(getDataSet());
+    /**
+     * Method splits the data set into 2 subsets drawn by the splitter, by percentage given as parameter
+     *
+     * @param splitPercent
+     * @param splitter     - seeded and optionally stratified source of the split
+     */
+    public void splitTrainingTestPercentage(final double splitPercent, final Splitter splitter) {
+        final Splitter.Split split = splitter.holdout(this.dataMatrix, splitPercent);
+        this.trainingRows = split.getTrainingRows();
+        this.testingRows = split.getTestingRows();
+    }
 
-        for (int i = 0; i < numberOfTestingSamples; i++) {
-            CSVRecord tmpSample = (CSVRecord) getDataSet().get(ThreadLocalRandom.current().nextInt(0, instancesLocalSet.size()));
-            this.testingSet.add(tmpSample);
-            instancesLocalSet.remove(tmpSample);
-        }
-        this.trainingSet = instancesLocalSet;
+    /**
+     * Creates a view of the data set with a split of its own, the data itself is not copied.
+     * Views can be trained and tested concurrently.
+     *
+     * @param trainingRows - indices of the training rows in the data matrix
+     * @param testingRows  - indices of the testing rows in the data matrix
+     * @return
+     */
+    public PreprocessedData withSplit(final int[] trainingRows, final int[] testingRows) {
+        return new PreprocessedData(this, trainingRows, testingRows);
     }
 
-    public List getDataSet() {
-        return this.data.getDataSet();
+    /**
+     * @param split
+     * @return - a view of the data set with the split
+     */
+    public PreprocessedData withSplit(final Splitter.Split split) {
+        return withSplit(split.getTrainingRows(), split.getTestingRows());
     }
 
-    public List getTrainingDataSet() {
-        return this.trainingSet.size() > 0 ?
-                this.trainingSet :
-                this.data.getDataSet();
+    public DataMatrix getDataMatrix() {
+        return this.dataMatrix;
+    }
 
+    /**
+     * @return - indices of the training rows in the data matrix
+     */
+    public int[] getTrainingRows() {
+        return this.trainingRows.length > 0 ?
+                this.trainingRows :
+                this.dataMatrix.getAllRows();
     }
 
-    public List getTestingDataSet() {
-        return this.testingSet;
+    /**
+     * @return - indices of the testing rows in the data matrix
+     */
+    public int[] getTestingRows() {
+        return this.testingRows;
     }
 
     public HashMap<String, Attribute> getAttributes() {
@@ -1,7 +1,5 @@
 package driver;
 
-import java.util.TreeSet;
-
 /**
  * Created by Suavek on 17/11/2016.
  */
@@ -28,16 +26,21 @@ public class Pruning {
         final double entropyA = gain.getEntropyA();
         final double entropyB = gain.getEntropyB();
         final double entropyAB = gain.getEntropyAB();
-        final double sizeA = gain.recordsBelowEqualThreshold != null ? gain.recordsBelowEqualThreshold.size() : 0;
-        final double sizeB = gain.recordsAboveThreshold != null ? gain.recordsAboveThreshold.size() : 0;
+        final double sizeA = gain.getLeftSize();
+        final double sizeB = gain.getRightSize();
         final double N = sizeA + sizeB;
-        final double A = gain.occurrenceA.size();
-        final double B = gain.occurrenceB.size();
+        final double A = countLabels(gain.occurrenceA);
+        final double B = countLabels(gain.occurrenceB);
         // |AuB| - number of possible labels in entire set
-        final TreeSet labels = new TreeSet();
-        labels.addAll(gain.occurrenceA.keySet());
-        labels.addAll(gain.occurrenceB.keySet());
-        final double AuB = labels.size();
+        int labels = 0;
+        if (gain.occurrenceA != null) {
+            for (int label = 0; label < gain.occurrenceA.length; label++) {
+                if (gain.occurrenceA[label] > 0 || gain.occurrenceB[label] > 0) {
+                    labels++;
+                }
+            }
+        }
+        final double AuB = labels;
 
         double leftSideOfFormula = ((1 / N) * (Math.log(N - 1) / Math.log(2))) +
                 (1 / N) * ((Math.log(Math.pow(3, AuB) - 2) / Math.log(2)) - (AuB * entropyAB) - (A * entropyA) - (B * entropyB));
@@ -45,5 +48,21 @@ public class Pruning {
         return gainValue > 0 && gainValue >= leftSideOfFormula;
     }
 
+    /**
+     * @param occurrences - occurrences of each label code
+     * @return - number of labels that occur at least once
+     */
+    private static int countLabels(final int[] occurrences) {
+        int labels = 0;
+        if (occurrences != null) {
+            for (final int occurrence : occurrences) {
+                if (occurrence > 0) {
+                    labels++;
+                }
+            }
+        }
+        return labels;
+    }
+
 
 }
@@ -0,0 +1,159 @@
+package driver;
+
+import java.util.Random;
+
+/**
+ * Draws random training and testing subsets of the rows of a data matrix in time linear in the number of rows.
+ * The rows are chosen by a partial Fisher-Yates shuffle of the row indices, so no row is drawn twice.
+ * A stratified splitter shuffles the rows of every label on their own, giving each subset the label
+ * proportions of the whole data set. The subsets list their rows in increasing order.
+ */
+public class Splitter {
+
+    private final Random random;
+    private final boolean stratified;
+
+    /**
+     * @param seed       - splitters with the same seed draw the same subsets in the same order
+     * @param stratified - keep the label proportions in every subset
+     */
+    public Splitter(final long seed, final boolean stratified) {
+        this.random = new Random(seed);
+        this.stratified = stratified;
+    }
+
+    /**
+     * @param data
+     * @param trainingFraction - fraction of the rows to train on, rounded up
+     * @return
+     */
+    public Split holdout(final DataMatrix data, final double trainingFraction) {
+        final int numberOfRows = data.getNumberOfRows();
+        final int numberOfTestingRows = numberOfRows - (int) Math.ceil(numberOfRows * trainingFraction);
+        final boolean[] testing = new boolean[numberOfRows];
+        final int[] offsets = offsets(data);
+        final int[] rows = rows(data, offsets);
+        for (int label = 0; label < offsets.length - 1; label++) {
+            // the testing rows of every label are its share of the testing rows counted so far, so they sum up exactly
+            final int from = offsets[label];
+            final int to = offsets[label + 1];
+            final int count = (int) ((long) to * numberOfTestingRows / numberOfRows) - (int) ((long) from * numberOfTestingRows / numberOfRows);
+            for (int i = from; i < from + count; i++) {
+                swap(rows, i, i + this.random.nextInt(to - i));
+                testing[rows[i]] = true;
+            }
+        }
+        return split(testing, numberOfRows - numberOfTestingRows, numberOfTestingRows);
+    }
+
+    /**
+     * @param data
+     * @param numberOfFolds
+     * @return - a split per fold testing on the fold and training on the other folds, folds differ in size by at most one row
+     */
+    public Split[] folds(final DataMatrix data, final int numberOfFolds) {
+        final int numberOfRows = data.getNumberOfRows();
+        final int[] offsets = offsets(data);
+        final int[] rows = rows(data, offsets);
+        for (int label = 0; label < offsets.length - 1; label++) {
+            for (int i = offsets[label + 1] - 1; i > offsets[label]; i--) {
+                swap(rows, i, offsets[label] + this.random.nextInt(i - offsets[label] + 1));
+            }
+        }
+        // dealing the shuffled rows out in turn spreads every label evenly over the folds
+        final int[] fold = new int[numberOfRows];
+        for (int i = 0; i < numberOfRows; i++) {
+            fold[rows[i]] = i % numberOfFolds;
+        }
+        final Split[] splits = new Split[numberOfFolds];
+        final boolean[] testing = new boolean[numberOfRows];
+        for (int f = 0; f < numberOfFolds; f++) {
+            for (int row = 0; row < numberOfRows; row++) {
+                testing[row] = fold[row] == f;
+            }
+            final int numberOfTestingRows = numberOfRows / numberOfFolds + (f < numberOfRows % numberOfFolds ? 1 : 0);
+            splits[f] = split(testing, numberOfRows - numberOfTestingRows, numberOfTestingRows);
+        }
+        return splits;
+    }
+
+    /**
+     * @param data
+     * @return - start of the rows of each label in the grouped row order, a single group when not stratified
+     */
+    private int[] offsets(final DataMatrix data) {
+        if (!this.stratified) {
+            return new int[]{0, data.getNumberOfRows()};
+        }
+        final int[] offsets = new int[data.getLabelDictionary().length + 1];
+        for (final int label : data.getLabels()) {
+            offsets[label + 1]++;
+        }
+        for (int label = 1; label < offsets.length; label++) {
+            offsets[label] += offsets[label - 1];
+        }
+        return offsets;
+    }
+
+    /**
+     * @param data
+     * @param offsets
+     * @return - the row indices grouped by label, counting sort
+     */
+    private static int[] rows(final DataMatrix data, final int[] offsets) {
+        if (offsets.length == 2) {
+            return data.getAllRows();
+        }
+        final int[] labels = data.getLabels();
+        final int[] next = new int[offsets.length - 1];
+        System.arraycopy(offsets, 0, next, 0, next.length);
+        final int[] rows = new int[labels.length];
+        for (int row = 0; row < labels.length; row++) {
+            rows[next[labels[row]]++] = row;
+        }
+        return rows;
+    }
+
+    private static Split split(final boolean[] testing, final int numberOfTrainingRows, final int numberOfTestingRows) {
+        final int[] trainingRows = new int[numberOfTrainingRows];
+        final int[] testingRows = new int[numberOfTestingRows];
+        int training = 0;
+        int tested = 0;
+        for (int row = 0; row < testing.length; row++) {
+            if (testing[row]) {
+                testingRows[tested++] = row;
+            } else {
+                trainingRows[training++] = row;
+            }
+        }
+        return new Split(trainingRows, testingRows);
+    }
+
+    private static void swap(final int[] rows, final int i, final int j) {
+        final int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+
+    /**
+     * Training and testing rows of a data matrix
+     */
+    public static class Split {
+
+        private final int[] trainingRows;
+        private final int[] testingRows;
+
+        private Split(final int[] trainingRows, final int[] testingRows) {
+            this.trainingRows = trainingRows;
+            this.testingRows = testingRows;
+        }
+
+        public int[] getTrainingRows() {
+            return this.trainingRows;
+        }
+
+        public int[] getTestingRows() {
+            return this.testingRows;
+        }
+    }
+}
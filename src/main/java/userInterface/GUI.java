@@ -2,6 +2,8 @@ package userInterface;
 
 import classifier.C45;
 import classifier.Results;
+import dataReader.BinaryDataReader;
+import driver.CrossValidation;
 import driver.GUIDriver;
 import driver.PreprocessedData;
 
@@ -9,6 +11,10 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -36,7 +42,7 @@ public class GUI {
          * Initialise the training percentage as 66%.
          */
 
-        GUIDriver driver = new GUIDriver(0.66, new C45());
+        GUIDriver driver = new GUIDriver(0.66, C45::new);
 
         /**
          * Create the frame.
@@ -94,6 +100,15 @@ public class GUI {
         JButton saveResultsButton = new JButton("Save Results");
         saveResultsButton.setVisible(false);
 
+        //Button that stops a running algorithm. Only visible while the algorithm runs
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setVisible(false);
+
+        //Progress bar counting the trees created so far
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+
 
         /**
          * Add action listeners
@@ -103,10 +118,11 @@ public class GUI {
 
             JFileChooser fileChooser = new JFileChooser();
 
-            //Program currently only supports CSV files
+            //Program currently supports CSV files and binary datasets converted from them
             fileChooser.setAcceptAllFileFilterUsed(false);
-            FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("csv datasets (*.csv)", "csv");
-            fileChooser.setFileFilter(csvFilter);
+            FileNameExtensionFilter datasetFilter = new FileNameExtensionFilter("datasets (*.csv, *" + BinaryDataReader.EXTENSION + ")",
+                    "csv", BinaryDataReader.EXTENSION.substring(1));
+            fileChooser.setFileFilter(datasetFilter);
 
             int returnValue = fileChooser.showOpenDialog(new JFrame());
             if (returnValue == JFileChooser.APPROVE_OPTION) {
@@ -116,7 +132,7 @@ public class GUI {
                     driver.setPpd(new PreprocessedData(file.getAbsolutePath()));
 
                 } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(null, "Not a valid csv file.");
+                    JOptionPane.showMessageDialog(null, "Not a valid dataset file.");
                     return;
                 }
 
@@ -143,6 +159,13 @@ public class GUI {
             }
         });
 
+        cancelButton.addActionListener(e -> {
+
+            //Stop the induction of the trees, the background task ends once all of them have stopped
+            driver.cancel();
+            cancelButton.setEnabled(false);
+        });
+
         runButton.addActionListener(e -> {
 
             //Check that a file has been selected
@@ -184,54 +207,87 @@ public class GUI {
 
 
             /**
-             * Run the C45 algorithm for the number of times specified
+             * Run the C45 algorithm for the number of times specified, the dataset loaded when the file
+             * was chosen is shared and each run draws a training split of its own.
+             * The runs happen in the background, the results of each tree are shown as soon as it is done.
              */
 
+            driver.setTrainingSplitPercentage(trainingSplitPercentage);
+            textDisplay.setText("");
+            runButton.setEnabled(false);
+            saveResultsButton.setVisible(false);
+            cancelButton.setEnabled(true);
+            cancelButton.setVisible(true);
+            progressBar.setValue(0);
+            progressBar.setVisible(true);
 
-            //Hold aggregate values
-            String resultText = "";
-            double[] accuracies = new double[numberOfTreesToCreate];
-
+            SwingWorker<CrossValidation.Evaluation, String> worker = new SwingWorker<CrossValidation.Evaluation, String>() {
 
-            for (int i = 0; i < numberOfTreesToCreate; i++) {
+                private final AtomicInteger treesCreated = new AtomicInteger();
 
-                //Create a new PreprocessedData instance
-                try {
-                    driver.setPpd(new PreprocessedData(selectedFile.getText()));
-                } catch (Exception e1) {
-                    e1.printStackTrace();
-                }
-                driver.setTrainingSplitPercentage(trainingSplitPercentage);
-                driver.train();
-                driver.test();
-                Results results = driver.getResults();
+                @Override
+                protected CrossValidation.Evaluation doInBackground() {
+                    return driver.evaluate(numberOfTreesToCreate, (run, results) -> {
+                        StringBuilder resultText = new StringBuilder();
 
-                //Specify what tree these results belong to
-                resultText = resultText.concat("Tree " + (i + 1) + ":\n\n");
+                        //Specify what tree these results belong to
+                        resultText.append("Tree ").append(run + 1).append(":\n\n");
 
-                double classificationAccuracy = results.getAccuracy();
-                accuracies[i] = classificationAccuracy;
-
-                //Print the accuracy and confusion matrix
-                resultText = resultText.concat("Classification Accuracy: " + results.getAccuracy() + "\n\n");
-                resultText = resultText.concat(results.getConfusionMatrix());
-
-                resultText = resultText.concat("\n");
-                resultText = resultText.concat("__________________________________________________\n\n");
-            }
+                        //Print the accuracy, confusion matrix and per label metrics
+                        resultText.append("Classification Accuracy: ").append(results.getAccuracy()).append("\n\n");
+                        resultText.append(results.getConfusionMatrix());
+                        resultText.append("\n").append(results.getClassMetrics());
 
-            //Print results to the display
-            textDisplay.setText(resultText);
-            saveResultsButton.setVisible(true);
+                        resultText.append("\n");
+                        resultText.append("__________________________________________________\n\n");
 
-            //Calculate and print the mean classification accuracy
-            double sum = 0.0;
-
-            for (double d : accuracies) sum += d;
+                        publish(resultText.toString());
+                        setProgress(100 * treesCreated.incrementAndGet() / numberOfTreesToCreate);
+                    });
+                }
 
-            double meanAccuracy = sum / (double) accuracies.length;
+                @Override
+                protected void process(List<String> resultTexts) {
+                    for (String resultText : resultTexts) {
+                        textDisplay.append(resultText);
+                    }
+                }
 
-            textDisplay.append("Mean Classification Accuracy: " + meanAccuracy);
+                @Override
+                protected void done() {
+                    runButton.setEnabled(true);
+                    cancelButton.setVisible(false);
+                    progressBar.setVisible(false);
+                    try {
+                        CrossValidation.Evaluation evaluation = get();
+
+                        //Print the mean classification accuracy and the predictions of all trees together
+                        StringBuilder resultText = new StringBuilder("All Trees:\n\n");
+                        resultText.append(evaluation.getResults().getConfusionMatrix());
+                        resultText.append("\n").append(evaluation.getResults().getClassMetrics());
+                        resultText.append("\nMean Classification Accuracy: ").append(evaluation.getMeanAccuracy());
+                        resultText.append("\nStandard Deviation of Accuracy: ").append(evaluation.getStandardDeviationOfAccuracy());
+                        textDisplay.append(resultText.toString());
+                        saveResultsButton.setVisible(true);
+                    } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof CancellationException) {
+                            textDisplay.append("Cancelled.\n");
+                            return;
+                        }
+                        ex.printStackTrace();
+                        JOptionPane.showMessageDialog(null, "The classifier could not be run: " + ex.getCause());
+                    } catch (InterruptedException ex) {
+                        ex.printStackTrace();
+                        JOptionPane.showMessageDialog(null, "The classifier could not be run: " + ex.getCause());
+                    }
+                }
+            };
+            worker.addPropertyChangeListener(event -> {
+                if ("progress".equals(event.getPropertyName())) {
+                    progressBar.setValue((Integer) event.getNewValue());
+                }
+            });
+            worker.execute();
 
         });
 
@@ -279,6 +335,13 @@ public class GUI {
 
         optionsPanel.add(runButton, gbc);
 
+        //Row 5
+
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+
+        optionsPanel.add(progressBar, gbc);
+
         /**
          * Column 2:
          **/
@@ -313,6 +376,13 @@ public class GUI {
 
         optionsPanel.add(saveResultsButton, gbc);
 
+        //Row 5
+
+        gbc.gridx = 1;
+        gbc.gridy = 4;
+
+        optionsPanel.add(cancelButton, gbc);
+
 
         /**
          * Add the options panel to the frame
@@ -0,0 +1,109 @@
+package classifier;
+
+import decisionTree.CompiledTree;
+import decisionTree.InductionOptions;
+import driver.CrossValidation;
+import driver.DataMatrix;
+import driver.PreprocessedData;
+import driver.TestDataSets;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Forests must grow the same trees serially and in parallel, also when grown within a task of their pool,
+ * and vote in batches as their trees do row by row
+ */
+public class RandomForestTest {
+
+    @ClassRule
+    public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+    private static PreprocessedData ppd;
+
+    @BeforeClass
+    public static void readData() throws Exception {
+        ppd = new PreprocessedData(TestDataSets.writeMixedCsv(FOLDER.getRoot().toPath().resolve("mixed.csv"), 10000, 31));
+    }
+
+    @Test
+    public void forestsAreGrownAlikeSeriallyAndInParallel() {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final RandomForest serial = new RandomForest(6, 9, createOptions(false, pool));
+            serial.train(ppd);
+            final RandomForest parallel = new RandomForest(6, 9, createOptions(true, pool));
+            parallel.train(ppd);
+            assertArrayEquals(classify(serial), classify(parallel));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void forestsAreGrownWithinTasksOfTheirPool() {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final InductionOptions options = createOptions(true, pool);
+            final CrossValidation.Evaluation parallel = new CrossValidation(ppd, () -> new RandomForest(4, 3, options), pool, 17).kFold(3);
+            final InductionOptions serialOptions = createOptions(false, pool);
+            final CrossValidation.Evaluation serial = new CrossValidation(ppd, () -> new RandomForest(4, 3, serialOptions), pool, 17).kFold(3);
+            assertEquals(serial.getResults().getConfusionMatrix(), parallel.getResults().getConfusionMatrix());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void batchesAreVotedAsRowsAre() {
+        final RandomForest forest = new RandomForest(5, 1, createOptions(true, ForkJoinPool.commonPool()));
+        forest.train(ppd);
+        final DataMatrix data = ppd.getDataMatrix();
+        final int[] predictions = classify(forest);
+        final CompiledTree first = forest.getTrees().get(0);
+        final double[] features = new double[first.getNumberOfFeatures()];
+        for (int row = 0; row < data.getNumberOfRows(); row++) {
+            first.getFeatures(data, row, features);
+            final int[] votes = new int[first.getNumberOfLabels()];
+            for (final CompiledTree tree : forest.getTrees()) {
+                final int prediction = tree.classify(features);
+                if (prediction >= 0) {
+                    votes[prediction]++;
+                }
+            }
+            int mostVoted = Results.NO_PREDICTION;
+            for (int label = 0; label < votes.length; label++) {
+                if (votes[label] > 0 && (mostVoted < 0 || votes[label] > votes[mostVoted])) {
+                    mostVoted = label;
+                }
+            }
+            assertEquals(mostVoted, predictions[row]);
+        }
+    }
+
+    private static InductionOptions createOptions(final boolean parallel, final ForkJoinPool pool) {
+        final InductionOptions options = new InductionOptions();
+        options.setExecutor(pool);
+        options.setParallelSubtrees(parallel);
+        options.setParallelAttributes(parallel);
+        options.setFeaturesPerNode(2);
+        return options;
+    }
+
+    /**
+     * @return - predictions of all rows of the data set in one batch, more rows than one block of the forest
+     */
+    private static int[] classify(final RandomForest forest) {
+        final DataMatrix data = ppd.getDataMatrix();
+        final int[] predictions = new int[data.getNumberOfRows()];
+        final CompiledTree first = forest.getTrees().get(0);
+        forest.classify(first.getFeatureColumns(data, data.getAllRows()), 0, predictions.length, predictions);
+        return predictions;
+    }
+}
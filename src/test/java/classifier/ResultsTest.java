@@ -0,0 +1,110 @@
+package classifier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Metrics of a confusion matrix worked out by hand:
+ * <pre>
+ *        a  b  c  none
+ *     a  5  1  0  0
+ *     b  1  3  0  0
+ *     c  0  0  2  1
+ * </pre>
+ */
+public class ResultsTest {
+
+    private static final List<String> LABELS = Arrays.asList("a", "b", "c");
+    private static final double DELTA = 1e-12;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void metricsFollowTheConfusionMatrix() {
+        final Results results = createResults(0, 13);
+        assertEquals(13, results.size());
+        assertEquals(10 / 13.0, results.getAccuracy(), DELTA);
+        assertEquals(5 / 6.0, results.getPrecision(0), DELTA);
+        assertEquals(5 / 6.0, results.getRecall(0), DELTA);
+        assertEquals(3 / 4.0, results.getPrecision(1), DELTA);
+        assertEquals(3 / 4.0, results.getRecall(1), DELTA);
+        assertEquals(1.0, results.getPrecision(2), DELTA);
+        assertEquals(2 / 3.0, results.getRecall(2), DELTA);
+        assertEquals(0.8, results.getF1(2), DELTA);
+        // chance agreement (6 * 6 + 4 * 4 + 3 * 2) / 13^2
+        assertEquals((10 / 13.0 - 58 / 169.0) / (1 - 58 / 169.0), results.getKappa(), DELTA);
+    }
+
+    @Test
+    public void labelsWithoutExamplesHaveNoPrecisionOrRecall() {
+        final Results results = new Results(LABELS);
+        results.add(0, 0);
+        results.add(1, 0);
+        assertEquals(0.0, results.getPrecision(2), DELTA);
+        assertEquals(0.0, results.getRecall(2), DELTA);
+        assertEquals(0.0, results.getF1(2), DELTA);
+        assertEquals(0.0, results.getF1(1), DELTA);
+    }
+
+    @Test
+    public void mergedResultsEqualResultsAddedAtOnce() {
+        final Results merged = createResults(0, 6);
+        merged.merge(createResults(6, 13));
+        final Results expected = createResults(0, 13);
+        assertEquals(expected.size(), merged.size());
+        assertEquals(expected.getConfusionMatrix(), merged.getConfusionMatrix());
+        assertEquals(expected.getClassMetrics(), merged.getClassMetrics());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resultsOverOtherLabelsAreNotMerged() {
+        createResults(0, 13).merge(new Results(Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void confusionMatrixHasAColumnForExamplesWithoutPrediction() {
+        final String[] lines = createResults(0, 13).getConfusionMatrix().split("\n");
+        assertEquals("Predicted:\ta\tb\tc\t ", lines[0]);
+        assertEquals("c\t0\t0\t2\t1\t", lines[3]);
+        assertEquals("Predicted:\ta\tb\tc", createResults(0, 10).getConfusionMatrix().split("\n")[0]);
+    }
+
+    @Test
+    public void predictionsAreAppendedToTheResultsFile() throws Exception {
+        final File file = this.folder.newFile();
+        final Results results = createResults(9, 13);
+        results.printResultsToFile(file.getPath());
+        results.printResultsToFile(file.getPath());
+        final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(10, lines.size());
+        assertEquals(Arrays.asList("actual,predicted,error", "b,a,+", "c,c,", "c,c,", "c, ,+"), lines.subList(0, 5));
+        assertEquals(lines.subList(0, 5), lines.subList(5, 10));
+    }
+
+    /**
+     * @param from - first example of the matrix to add
+     * @param to   - example following the last one to add
+     * @return
+     */
+    private static Results createResults(final int from, final int to) {
+        final int[][] examples = {
+                {0, 0}, {0, 0}, {0, 0}, {0, 0}, {0, 0}, {0, 1},
+                {1, 1}, {1, 1}, {1, 1}, {1, 0},
+                {2, 2}, {2, 2}, {2, Results.NO_PREDICTION}};
+        final Results results = new Results(LABELS);
+        for (int i = from; i < to; i++) {
+            results.add(examples[i][0], examples[i][1]);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,114 @@
+package dataReader;
+
+import driver.DataMatrix;
+import driver.PreprocessedData;
+import driver.TestDataSets;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The readers of a file must produce the same data matrix, whichever reads it and however it is split into ranges
+ */
+public class ReaderEquivalenceTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readersAgreeOnOwls() throws Exception {
+        assertReadersAgree(TestDataSets.OWLS);
+    }
+
+    @Test
+    public void readersAgreeOnMixedValues() throws Exception {
+        // large enough to be read in several ranges
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 120000, 7);
+        assertReadersAgree(file);
+    }
+
+    @Test
+    public void binaryDataSetsRoundTrip() throws Exception {
+        final String mixed = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 5000, 17);
+        for (final String file : Arrays.asList(TestDataSets.OWLS, mixed)) {
+            final DataMatrix expected = new CSVReader(file).getDataMatrix();
+            final String binary = this.folder.newFile().getPath() + BinaryDataReader.EXTENSION;
+            BinaryDataWriter.write(expected, binary);
+            final BinaryDataReader reader = new BinaryDataReader(binary);
+            TestDataSets.assertSameData(expected, reader.getDataMatrix());
+            assertEquals(new CSVReader(file).getAttributeNames(), reader.getAttributeNames());
+        }
+    }
+
+    @Test
+    public void numbersOfDiscreteColumnsKeepTheirText() throws Exception {
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 1000, 11);
+        final DataMatrix data = new CSVReader(file).getDataMatrix();
+        final String[] zips = data.getDictionary(data.getColumnIndex("zip"));
+        final String[] prices = data.getDictionary(data.getColumnIndex("price"));
+        assertFalse(data.isContinuous(data.getColumnIndex("zip")));
+        assertTrue(Arrays.asList(zips).contains("00007"));
+        assertTrue(Arrays.asList(prices).contains("1.50"));
+        assertFalse(Arrays.asList(prices).contains("1.5"));
+    }
+
+    @Test
+    public void preprocessedDataReadsOnTheGivenPool() throws Exception {
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 120000, 13);
+        final DataMatrix expected = new CSVReader(file).getDataMatrix();
+        TestDataSets.assertSameData(expected, new PreprocessedData(file, (ForkJoinPool) null).getDataMatrix());
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            TestDataSets.assertSameData(expected, new PreprocessedData(file, pool).getDataMatrix());
+            // read from a task of the pool, the ranges are forked and the worker reads them itself
+            TestDataSets.assertSameData(expected, pool.submit(() -> new MappedCSVReader(file, pool).getDataMatrix()).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void namedPipesAreStreamed() throws Exception {
+        final Path pipe = this.folder.getRoot().toPath().resolve("pipe.csv");
+        final Process mkfifo = new ProcessBuilder("mkfifo", pipe.toString()).start();
+        Assume.assumeTrue("named pipes are not supported", mkfifo.waitFor() == 0);
+        final Thread writer = new Thread(() -> {
+            try (final OutputStream out = Files.newOutputStream(pipe)) {
+                Files.copy(Paths.get(TestDataSets.OWLS), out);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.start();
+        try {
+            TestDataSets.assertSameData(new CSVReader(TestDataSets.OWLS).getDataMatrix(), new PreprocessedData(pipe.toString()).getDataMatrix());
+        } finally {
+            writer.join();
+        }
+    }
+
+    private static void assertReadersAgree(final String file) throws Exception {
+        final DataMatrix expected = new CSVReader(file).getDataMatrix();
+        TestDataSets.assertSameData(expected, new MappedCSVReader(file).getDataMatrix());
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TestDataSets.assertSameData(expected, new MappedCSVReader(file, pool).getDataMatrix());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
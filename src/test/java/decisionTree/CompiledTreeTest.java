@@ -0,0 +1,129 @@
+package decisionTree;
+
+import dataReader.CSVReader;
+import driver.DataMatrix;
+import driver.TestDataSets;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The compiled tree, row by row and in batches, must predict the labels Tree.search finds
+ */
+public class CompiledTreeTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void compiledTreeAgreesWithSearchOnOwls() throws Exception {
+        assertAgreesWithSearch(new CSVReader(TestDataSets.OWLS).getDataMatrix());
+    }
+
+    @Test
+    public void compiledTreeAgreesWithSearchOnMixedValues() throws Exception {
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 20000, 3);
+        assertAgreesWithSearch(new CSVReader(file).getDataMatrix());
+    }
+
+    @Test
+    public void recordsAreClassifiedAsBySearch() throws Exception {
+        final DataMatrix data = new CSVReader(TestDataSets.OWLS).getDataMatrix();
+        final Tree tree = new TreeConstructor(data, data.getAllRows()).getDecisionTree();
+        final CompiledTree compiledTree = CompiledTree.compile(tree, data);
+        final double[] features = new double[compiledTree.getNumberOfFeatures()];
+        try (Reader reader = Files.newBufferedReader(Paths.get(TestDataSets.OWLS), StandardCharsets.UTF_8);
+             CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+            for (final CSVRecord record : parser) {
+                assertEquals(tree.search(tree, record), compiledTree.getLabel(compiledTree.classify(compiledTree.getFeatures(record, features))));
+            }
+        }
+    }
+
+    @Test
+    public void loadedModelsClassifyAsSavedOnes() throws Exception {
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 20000, 19);
+        for (final String dataSet : Arrays.asList(TestDataSets.OWLS, file)) {
+            final DataMatrix data = new CSVReader(dataSet).getDataMatrix();
+            final Tree tree = new TreeConstructor(data, data.getAllRows()).getDecisionTree();
+            final CompiledTree saved = CompiledTree.compile(tree, data);
+            final String model = this.folder.newFile().getPath() + CompiledTree.EXTENSION;
+            saved.save(model);
+            final CompiledTree loaded = CompiledTree.load(model);
+            assertEquals(saved.getNumberOfNodes(), loaded.getNumberOfNodes());
+            assertEquals(saved.getNumberOfFeatures(), loaded.getNumberOfFeatures());
+            assertEquals(saved.getNumberOfLabels(), loaded.getNumberOfLabels());
+            for (int feature = 0; feature < saved.getNumberOfFeatures(); feature++) {
+                assertEquals(saved.getFeatureName(feature), loaded.getFeatureName(feature));
+                assertArrayEquals(saved.getDictionary(feature), loaded.getDictionary(feature));
+            }
+            assertAgreesWithSearch(data, tree, loaded);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreNotLoadedAsModels() throws Exception {
+        CompiledTree.load(TestDataSets.OWLS);
+    }
+
+    /**
+     * Trains a tree on all rows and compares its predictions with those of the compiled tree for single rows,
+     * for all rows in one batch and for a range of rows in a shuffled order
+     */
+    static void assertAgreesWithSearch(final DataMatrix data) {
+        final Tree tree = new TreeConstructor(data, data.getAllRows()).getDecisionTree();
+        assertAgreesWithSearch(data, tree, CompiledTree.compile(tree, data));
+    }
+
+    static void assertAgreesWithSearch(final DataMatrix data, final Tree tree, final FeatureClassifier classifier) {
+        final CompiledTree compiledTree = CompiledTree.compile(tree, data);
+        final int numberOfRows = data.getNumberOfRows();
+        final String[] expected = new String[numberOfRows];
+        final double[] features = new double[compiledTree.getNumberOfFeatures()];
+        for (int row = 0; row < numberOfRows; row++) {
+            expected[row] = tree.search(tree, data, row);
+            assertEquals(expected[row], classifier.getLabel(classifier.classify(compiledTree.getFeatures(data, row, features))));
+        }
+
+        final int[] predictions = new int[numberOfRows];
+        classifier.classify(compiledTree.getFeatureColumns(data, data.getAllRows()), 0, numberOfRows, predictions);
+        for (int row = 0; row < numberOfRows; row++) {
+            assertEquals(expected[row], classifier.getLabel(predictions[row]));
+        }
+
+        final int[] shuffled = data.getAllRows();
+        final Random random = new Random(5);
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int row = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = row;
+        }
+        final int from = numberOfRows / 3;
+        final int to = numberOfRows - numberOfRows / 4;
+        classifier.classify(compiledTree.getFeatureColumns(data, shuffled), from, to, predictions);
+        for (int i = from; i < to; i++) {
+            assertEquals(expected[shuffled[i]], classifier.getLabel(predictions[i]));
+        }
+        // the same range into an array holding the range only
+        final int[] rangePredictions = new int[to - from];
+        compiledTree.classify(compiledTree.getFeatureColumns(data, shuffled), from, to, rangePredictions, from);
+        for (int i = from; i < to; i++) {
+            assertEquals(expected[shuffled[i]], compiledTree.getLabel(rangePredictions[i - from]));
+        }
+    }
+}
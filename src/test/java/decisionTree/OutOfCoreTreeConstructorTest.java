@@ -0,0 +1,160 @@
+package decisionTree;
+
+import dataReader.MappedCSVReader;
+import dataReader.SpilledData;
+import driver.DataMatrix;
+import driver.TestDataSets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Spilled columns must hold what the mapped reader loads, and trees grown on them out of core must be
+ * the trees grown in memory in histogram mode as long as every distinct value has a bin of its own
+ */
+public class OutOfCoreTreeConstructorTest {
+
+    // as many bins as distinct values of the continuous columns of the grid, so the bin edges are the values themselves
+    private static final int BINS = 16;
+    private static final String[] SHADES = {"pale", "dark", "\"dark, matt\"", "grey"};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void spilledColumnsHoldTheLoadedValues() throws Exception {
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 5000, 37);
+        final DataMatrix data = new MappedCSVReader(file).getDataMatrix();
+        final SpilledData spilled = SpilledData.spill(file, this.folder.newFolder().getPath());
+        assertEquals(data.getNumberOfRows(), spilled.getNumberOfRows());
+        assertEquals(data.getTargetColumn(), spilled.getTargetColumn());
+        final DataMatrix schema = spilled.getSchema();
+        assertEquals(0, schema.getNumberOfRows());
+        for (int column = 0; column < data.getNumberOfColumns(); column++) {
+            final String name = data.getAttribute(column).getName();
+            assertEquals(name, spilled.getAttribute(column).getName());
+            assertEquals(name, data.isContinuous(column), spilled.isContinuous(column));
+            try (final SpilledData.ColumnReader reader = spilled.openColumn(column)) {
+                if (data.isContinuous(column)) {
+                    final double[] values = new double[data.getNumberOfRows()];
+                    reader.getDoubles(values, values.length);
+                    assertArrayEquals(name, data.getContinuousColumn(column), values, 0.0);
+                } else {
+                    assertArrayEquals(name, data.getDictionary(column), spilled.getDictionary(column));
+                    assertArrayEquals(name, data.getDictionary(column), schema.getDictionary(column));
+                    final int[] codes = new int[data.getNumberOfRows()];
+                    reader.getInts(codes, codes.length);
+                    assertArrayEquals(name, data.getDiscreteColumn(column), codes);
+                }
+            }
+        }
+        spilled.delete();
+    }
+
+    @Test
+    public void buffersOfManyColumnsShareTheBudget() throws Exception {
+        assertEquals(1 << 20, SpilledData.getBufferSize(1));
+        assertEquals(64 << 10, SpilledData.getBufferSize(100000));
+        assertTrue(SpilledData.getBufferSize(300) * 300L <= 64 << 20);
+        // a wide file spilled with the smaller buffers, its blocks spanning several refills of each buffer
+        final Path file = this.folder.getRoot().toPath().resolve("wide.csv");
+        final Random random = new Random(47);
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int column = 0; column < 300; column++) {
+                writer.write("c" + column + ",");
+            }
+            writer.write("label\n");
+            for (int row = 0; row < 30000; row++) {
+                for (int column = 0; column < 300; column++) {
+                    writer.write(random.nextInt(1000) / 10.0 + ",");
+                }
+                writer.write(random.nextBoolean() ? "yes\n" : "no\n");
+            }
+        }
+        final DataMatrix data = new MappedCSVReader(file.toString()).getDataMatrix();
+        final SpilledData spilled = SpilledData.spill(file.toString(), this.folder.newFolder().getPath());
+        try {
+            for (int column = 0; column < data.getNumberOfColumns(); column += 37) {
+                try (final SpilledData.ColumnReader reader = spilled.openColumn(column, SpilledData.getBufferSize(300))) {
+                    final double[] values = new double[data.getNumberOfRows()];
+                    reader.getDoubles(values, values.length);
+                    assertArrayEquals(data.getContinuousColumn(column), values, 0.0);
+                }
+            }
+        } finally {
+            spilled.delete();
+        }
+    }
+
+    @Test
+    public void outOfCoreTreesPredictAsTreesGrownInMemory() throws Exception {
+        final String file = writeGridCsv(this.folder.getRoot().toPath().resolve("grid.csv"), 40000, 43);
+        final InductionOptions options = new InductionOptions();
+        options.setHistogramBins(BINS);
+        final DataMatrix data = new MappedCSVReader(file).getDataMatrix();
+        final CompiledTree inMemory = CompiledTree.compile(new TreeConstructor(data, data.getAllRows(), options).getDecisionTree(), data);
+        final SpilledData spilled = SpilledData.spill(file, this.folder.newFolder().getPath());
+        try {
+            final CompiledTree outOfCore = CompiledTree.compile(new OutOfCoreTreeConstructor(spilled, options).getDecisionTree(),
+                    spilled.getSchema());
+            assertTrue(inMemory.getNumberOfNodes() > 10);
+            assertEquals(inMemory.getNumberOfNodes(), outOfCore.getNumberOfNodes());
+            assertArrayEquals(classify(inMemory, data), classify(outOfCore, data));
+        } finally {
+            spilled.delete();
+        }
+    }
+
+    /**
+     * Writes a csv file with two continuous columns of at most BINS distinct values, one holding blanks,
+     * a discrete column and a label depending on all three without noise. Every node of the tree keeps enough rows
+     * for the histograms, so the in memory induction does not fall back to exact thresholds.
+     *
+     * @param file
+     * @param rows
+     * @param seed
+     * @return - path of the file
+     * @throws IOException
+     */
+    private static String writeGridCsv(final Path file, final int rows, final long seed) throws IOException {
+        final Random random = new Random(seed);
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("width,depth,shade,label\n");
+            for (int row = 0; row < rows; row++) {
+                final int width = random.nextInt(BINS);
+                final boolean missing = random.nextInt(10) == 0;
+                final int depth = random.nextInt(BINS);
+                final int shade = random.nextInt(SHADES.length);
+                final String label;
+                if (missing) {
+                    label = shade < 2 ? "low" : "high";
+                } else if (width < 5) {
+                    label = depth < 8 ? "low" : "mid";
+                } else if (width < 11) {
+                    label = shade == 0 ? "high" : "mid";
+                } else {
+                    label = depth < 3 ? "high" : "low";
+                }
+                writer.write((missing ? "" : Integer.toString(width)) + "," + (depth + 0.5) + "," + SHADES[shade] + "," + label + "\n");
+            }
+        }
+        return file.toString();
+    }
+
+    private static int[] classify(final CompiledTree tree, final DataMatrix data) {
+        final int[] predictions = new int[data.getNumberOfRows()];
+        tree.classify(tree.getFeatureColumns(data, data.getAllRows()), 0, predictions.length, predictions);
+        return predictions;
+    }
+}
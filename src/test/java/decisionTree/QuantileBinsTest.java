@@ -0,0 +1,51 @@
+package decisionTree;
+
+import driver.Attribute;
+import driver.DataMatrix;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bins placed from a sample of a column larger than the sketch must still hold about equal numbers of rows,
+ * and no value may fall above the last edge into the bin of missing values
+ */
+public class QuantileBinsTest {
+
+    private static final int BINS = 16;
+
+    @Test
+    public void sampledBinsHoldEveryValue() {
+        final int numberOfRows = 4 * QuantileBins.SKETCH_SIZE;
+        final Random random = new Random(53);
+        final double[] values = new double[numberOfRows];
+        final int[] labels = new int[numberOfRows];
+        int missing = 0;
+        for (int row = 0; row < numberOfRows; row++) {
+            values[row] = random.nextInt(20) == 0 ? Double.NaN : random.nextGaussian();
+            missing += Double.isNaN(values[row]) ? 1 : 0;
+        }
+        // a single largest value, most likely left out of the sample
+        values[numberOfRows / 2] = 1000;
+        final Attribute[] attributes = {new Attribute("value", true), new Attribute("label", false)};
+        attributes[1].setAsTarget();
+        final DataMatrix data = DataMatrix.of(attributes, 1, new double[][]{values, null}, new int[][]{null, labels},
+                new String[][]{null, {"label"}});
+
+        final QuantileBins bins = QuantileBins.of(data, data.getAllRows(), BINS);
+        assertEquals(BINS, bins.getNumberOfBins(0));
+        assertEquals(1000, bins.getEdges(0)[BINS - 1], 0.0);
+        final int[] rowsOfBin = new int[BINS + 1];
+        for (final int bin : bins.getBins(0)) {
+            rowsOfBin[bin]++;
+        }
+        assertEquals(missing, rowsOfBin[BINS]);
+        for (int bin = 0; bin < BINS; bin++) {
+            final double share = rowsOfBin[bin] * (double) BINS / (numberOfRows - missing);
+            assertTrue("bin " + bin + " holds " + rowsOfBin[bin] + " rows", share > 0.9 && share < 1.1);
+        }
+    }
+}
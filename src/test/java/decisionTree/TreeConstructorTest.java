@@ -0,0 +1,119 @@
+package decisionTree;
+
+import dataReader.CSVReader;
+import driver.DataMatrix;
+import driver.TestDataSets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Trees must keep predicting as the reference trees recorded for the sample data sets,
+ * and trees grown in presorted mode must be the trees grown by sorting at every node, node for node
+ */
+public class TreeConstructorTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // predictions for the rows of owls15.csv, L for LongEaredOwl, S for SnowyOwl and B for BarnOwl,
+    // of the trees trained on all rows, the rows of even index and the rows of odd index.
+    // Trained on all rows the tree predicts as the tree grown on csv records before the data matrix did;
+    // trained on half the rows it takes the thresholds within ties of mixed classes those records missed
+    private static final String[] OWLS_PREDICTIONS = {
+            "LLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLSSSSSSSSBSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSSBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBS",
+            "LLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLSSBSSSSSBSSSSSSSSSSSBSSSBSSSSSBSSSSSSSSSSSSSSBBBBBBBBBBBBBSBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB",
+            "LLLLLLBLLLLLLLLLLLLLLLLLLLLLLLBLLLLLLLLLLLLLLSSSSSSSSBSSSSSSSSSSSSSSBSSSSSSSSSSSSSSSSSSSSSBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBS"};
+
+    @Test
+    public void treesPredictAsTheReferenceTreesOnOwls() throws Exception {
+        final DataMatrix data = new CSVReader(TestDataSets.OWLS).getDataMatrix();
+        final int numberOfRows = data.getNumberOfRows();
+        for (int set = 0; set < OWLS_PREDICTIONS.length; set++) {
+            final int parity = set - 1;
+            final int[] rows = IntStream.range(0, numberOfRows).filter(row -> parity < 0 || row % 2 == parity).toArray();
+            final Tree tree = new TreeConstructor(data, rows).getDecisionTree();
+            final StringBuilder predictions = new StringBuilder();
+            for (int row = 0; row < numberOfRows; row++) {
+                predictions.append(tree.search(tree, data, row).charAt(0));
+            }
+            assertEquals("trained on set " + set, OWLS_PREDICTIONS[set], predictions.toString());
+        }
+    }
+
+    @Test
+    public void treesPredictAsTheReferenceTreesOnMixedValues() throws Exception {
+        // discrete attributes, numbers that turn discrete and missing values, trained on the rows of even index
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 2000, 41);
+        final DataMatrix data = new CSVReader(file).getDataMatrix();
+        final int[] rows = IntStream.range(0, data.getNumberOfRows()).filter(row -> row % 2 == 0).toArray();
+        final Tree tree = new TreeConstructor(data, rows).getDecisionTree();
+        assertEquals(962, CompiledTree.compile(tree, data).getNumberOfNodes());
+        int correct = 0;
+        for (int row = 0; row < data.getNumberOfRows(); row++) {
+            if (tree.search(tree, data, row).equals(data.getLabelDictionary()[data.getLabels()[row]])) {
+                correct++;
+            }
+        }
+        assertEquals(1371, correct);
+    }
+
+    @Test
+    public void presortedInductionGrowsTheSameTrees() throws Exception {
+        final String file = TestDataSets.writeMixedCsv(this.folder.getRoot().toPath().resolve("mixed.csv"), 20000, 29);
+        for (final String dataSet : Arrays.asList(TestDataSets.OWLS, file)) {
+            final DataMatrix data = new CSVReader(dataSet).getDataMatrix();
+            final int numberOfRows = data.getNumberOfRows();
+            // all rows, every other row, and a bootstrap sample weighting its rows by their copies
+            final int[] everyOther = new int[(numberOfRows + 1) / 2];
+            for (int i = 0; i < everyOther.length; i++) {
+                everyOther[i] = 2 * i;
+            }
+            final int[] weights = new int[numberOfRows];
+            final Random random = new Random(31);
+            for (int i = 0; i < numberOfRows; i++) {
+                weights[random.nextInt(numberOfRows)]++;
+            }
+            final int[] sampled = new int[numberOfRows];
+            int size = 0;
+            for (int row = 0; row < numberOfRows; row++) {
+                if (weights[row] > 0) {
+                    sampled[size++] = row;
+                }
+            }
+            final int[] bootstrap = Arrays.copyOf(sampled, size);
+
+            assertSameTree(data, data.getAllRows(), null);
+            assertSameTree(data, everyOther, null);
+            assertSameTree(data, bootstrap, weights);
+        }
+    }
+
+    /**
+     * Compares the saved models of the trees grown with and without presorting, which hold every node's
+     * attribute, threshold and children
+     */
+    private void assertSameTree(final DataMatrix data, final int[] rows, final int[] weights) throws IOException {
+        final InductionOptions presorted = new InductionOptions();
+        presorted.setPresorted(true);
+        final Tree expected = new TreeConstructor(data, rows, weights, new InductionOptions(), 0).getDecisionTree();
+        final Tree actual = new TreeConstructor(data, rows, weights, presorted, 0).getDecisionTree();
+        assertArrayEquals(save(expected, data), save(actual, data));
+    }
+
+    private byte[] save(final Tree tree, final DataMatrix data) throws IOException {
+        final String model = this.folder.newFile().getPath() + CompiledTree.EXTENSION;
+        CompiledTree.compile(tree, data).save(model);
+        return Files.readAllBytes(Paths.get(model));
+    }
+}
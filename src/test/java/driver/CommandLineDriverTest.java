@@ -0,0 +1,101 @@
+package driver;
+
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scores of a saved model must not depend on whether the scored file carries the label column,
+ * and failed commands must return their exit status instead of exiting
+ */
+public class CommandLineDriverTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void unlabeledFilesScoreAsLabeledOnes() throws Exception {
+        final Path root = this.folder.getRoot().toPath();
+        final String model = root.resolve("owls.j48m").toString();
+        run("train", TestDataSets.OWLS, model);
+
+        // the label is the last column of owls15.csv, the shuffled copy also reverses the other columns
+        final List<String> lines = Files.readAllLines(Paths.get(TestDataSets.OWLS), StandardCharsets.UTF_8);
+        final List<String> unlabeledLines = Lists.newArrayList();
+        final List<String> shuffledLines = Lists.newArrayList();
+        for (final String line : lines) {
+            final List<String> fields = Lists.newArrayList(line.split(","));
+            fields.remove(fields.size() - 1);
+            unlabeledLines.add(String.join(",", fields));
+            shuffledLines.add(String.join(",", Lists.reverse(fields)));
+        }
+        final Path unlabeled = Files.write(root.resolve("unlabeled.csv"), unlabeledLines, StandardCharsets.UTF_8);
+        final Path shuffled = Files.write(root.resolve("shuffled.csv"), shuffledLines, StandardCharsets.UTF_8);
+        // a byte order mark must not hide the first column
+        final byte[] text = Files.readAllBytes(shuffled);
+        final byte[] marked = new byte[text.length + 3];
+        marked[0] = (byte) 0xEF;
+        marked[1] = (byte) 0xBB;
+        marked[2] = (byte) 0xBF;
+        System.arraycopy(text, 0, marked, 3, text.length);
+        final Path withByteOrderMark = Files.write(root.resolve("marked.csv"), marked);
+
+        final List<String> labeledScores = score(model, TestDataSets.OWLS);
+        assertEquals(lines.size(), labeledScores.size());
+        assertTrue(new HashSet<>(labeledScores.subList(1, labeledScores.size())).size() > 1);
+        assertEquals(labeledScores, score(model, unlabeled.toString()));
+        assertEquals(labeledScores, score(model, shuffled.toString()));
+        assertEquals(labeledScores, score(model, withByteOrderMark.toString()));
+    }
+
+    @Test
+    public void failedCommandsReturnTheirStatus() throws Exception {
+        final String missing = this.folder.getRoot().toPath().resolve("missing.j48m").toString();
+        assertEquals(1, CommandLineDriver.run(discard(), discard(), "score", missing, TestDataSets.OWLS, this.folder.newFile().getPath()));
+        assertEquals(2, CommandLineDriver.run(discard(), discard(), "rank", TestDataSets.OWLS));
+        assertEquals(2, CommandLineDriver.run(discard(), discard(), "train", TestDataSets.OWLS, missing, "--threads", "0"));
+    }
+
+    @Test
+    public void outOfCoreTrainingReadsUpperCaseExtensions() throws Exception {
+        final Path root = this.folder.getRoot().toPath();
+        final Path upperCase = Files.copy(Paths.get(TestDataSets.OWLS), root.resolve("OWLS.CSV"));
+        final String model = root.resolve("owls.j48m").toString();
+        final String upperCaseModel = root.resolve("OWLS.j48m").toString();
+        run("train", TestDataSets.OWLS, model, "--out-of-core", this.folder.newFolder().getPath());
+        run("train", upperCase.toString(), upperCaseModel, "--out-of-core", this.folder.newFolder().getPath());
+        assertEquals(score(model, TestDataSets.OWLS), score(upperCaseModel, TestDataSets.OWLS));
+    }
+
+    private List<String> score(final String model, final String data) throws Exception {
+        final Path output = this.folder.newFile().toPath();
+        run("score", model, data, output.toString());
+        return Files.readAllLines(output, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs a command which has to succeed, its errors become the message of the failure
+     */
+    private static void run(final String... args) {
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final int status = CommandLineDriver.run(discard(), new PrintStream(err, true), args);
+        assertEquals(new String(err.toByteArray(), StandardCharsets.UTF_8), 0, status);
+    }
+
+    private static PrintStream discard() {
+        return new PrintStream(new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,32 @@
+package driver;
+
+import classifier.C45;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Evaluations run within a task of their own pool must fork their folds and give the results of evaluations run from outside
+ */
+public class CrossValidationTest {
+
+    @Test(timeout = 60000)
+    public void evaluationsRunWithinTheirPool() throws Exception {
+        final PreprocessedData ppd = new PreprocessedData(TestDataSets.OWLS);
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            final CrossValidation crossValidation = new CrossValidation(ppd, C45::new, pool, 7);
+            final CrossValidation.Evaluation outside = crossValidation.kFold(5);
+            final CrossValidation.Evaluation inside = pool.submit(() -> crossValidation.kFold(5)).get();
+            assertEquals(5, inside.getRunResults().size());
+            assertEquals(outside.getResults().getConfusionMatrix(), inside.getResults().getConfusionMatrix());
+            assertEquals(outside.getMeanAccuracy(), inside.getMeanAccuracy(), 0.0);
+            final CrossValidation.Evaluation holdouts = pool.submit(() -> crossValidation.repeatedHoldout(3, 0.66)).get();
+            assertEquals(crossValidation.repeatedHoldout(3, 0.66).getResults().getConfusionMatrix(), holdouts.getResults().getConfusionMatrix());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
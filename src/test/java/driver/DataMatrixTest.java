@@ -0,0 +1,41 @@
+package driver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * DataMatrix.isNumber must accept exactly the values Double.parseDouble accepts
+ */
+public class DataMatrixTest {
+
+    private static final String[] VALUES = {
+            // decimal notation, signs and exponents
+            "0", "1", "-1", "+1", "1.", ".5", "-.5", "+.5", "1.5", "00012", "1e5", "1E5", "1e+5", "1e-5", "-1.5e-5",
+            "1e", "1e+", "e5", ".e5", ".", "-.", "1.5.2", "1e5.5", "1e5e5", "--1", "+-1", "1-", "1,5", "1 5",
+            // special values
+            "NaN", "-NaN", "+NaN", "Infinity", "-Infinity", "+Infinity", "nan", "NAN", "infinity", "Inf", "NaNd", "Infinityf",
+            // hexadecimal notation, where the exponent is required
+            "0x1p3", "0X1P3", "-0x1.8p1", "0x.8p1", "0xAp0", "0x1.fffffffffffffp1023", "0x1p3d", "0x1", "0x1.8", "0xp3", "0x.p1",
+            "0x1p", "0x1e3", "1p3", "0xg1p3",
+            // type suffixes
+            "1d", "1D", "1f", "1F", "1.5e3d", ".5f", "1dd", "1l", "1L", "d", "1fd",
+            // whitespace and empty values
+            " 1", "1 ", "\t1\n", " ", "", "+", "-", " -1 ", "\u00a01"};
+
+    @Test
+    public void numbersAreTheValuesParseDoubleAccepts() {
+        for (final String value : VALUES) {
+            assertEquals("\"" + value + "\"", parses(value), DataMatrix.isNumber(value));
+        }
+    }
+
+    private static boolean parses(final String value) {
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+}
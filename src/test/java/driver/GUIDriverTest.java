@@ -0,0 +1,63 @@
+package driver;
+
+import classifier.C45;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Evaluations of the GUI run every repetition, and end with a CancellationException once cancelled
+ */
+public class GUIDriverTest {
+
+    @Test
+    public void evaluationEvaluatesEveryRepetition() throws Exception {
+        try (final GUIDriver driver = new GUIDriver(0.66, C45::new)) {
+            driver.setPpd(new PreprocessedData(TestDataSets.OWLS));
+            final AtomicInteger finished = new AtomicInteger();
+            final CrossValidation.Evaluation evaluation = driver.evaluate(5, (run, results) -> finished.incrementAndGet());
+            assertEquals(5, finished.get());
+            assertEquals(5, evaluation.getRunResults().size());
+            assertEquals(driver.getResults().size(), evaluation.getResults().size());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void evaluationCancelledAfterEveryTrainingEndsWithCancellationException() throws Exception {
+        try (final GUIDriver driver = new GUIDriver(0.66, C45::new)) {
+            driver.setPpd(new PreprocessedData(TestDataSets.OWLS));
+            // every repetition waits in the listener for the others, so all of them are past their training when one cancels.
+            // The pool of the driver has a thread per processor, more repetitions could not wait at the same time.
+            final int repetitions = Math.min(4, Runtime.getRuntime().availableProcessors());
+            final CountDownLatch trained = new CountDownLatch(repetitions);
+            final AtomicInteger finished = new AtomicInteger();
+            try {
+                driver.evaluate(repetitions, (run, results) -> {
+                    finished.incrementAndGet();
+                    trained.countDown();
+                    try {
+                        assertTrue(trained.await(30, TimeUnit.SECONDS));
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (run == 0) {
+                        driver.cancel();
+                    }
+                });
+                fail("Cancelled evaluation returned");
+            } catch (final CancellationException e) {
+                assertEquals(repetitions, finished.get());
+            }
+            // the next evaluation is not cancelled
+            assertEquals(2, driver.evaluate(2, (run, results) -> {
+            }).getRunResults().size());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package driver;
+
+import dataReader.CSVReader;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Splits must partition the rows, be reproducible by their seed and, when stratified,
+ * keep the label proportions up to rounding
+ */
+public class SplitterTest {
+
+    @ClassRule
+    public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+    private static DataMatrix data;
+
+    @BeforeClass
+    public static void readData() throws Exception {
+        data = new CSVReader(TestDataSets.writeMixedCsv(FOLDER.getRoot().toPath().resolve("mixed.csv"), 10007, 23)).getDataMatrix();
+    }
+
+    @Test
+    public void holdoutPartitionsTheRows() {
+        for (final boolean stratified : new boolean[]{false, true}) {
+            final Splitter.Split split = new Splitter(1, stratified).holdout(data, 0.66);
+            assertEquals((int) Math.ceil(data.getNumberOfRows() * 0.66), split.getTrainingRows().length);
+            assertPartition(split);
+        }
+    }
+
+    @Test
+    public void splittersWithTheSameSeedDrawTheSameRows() {
+        final Splitter.Split split = new Splitter(5, false).holdout(data, 0.5);
+        assertArrayEquals(split.getTestingRows(), new Splitter(5, false).holdout(data, 0.5).getTestingRows());
+        assertFalse(Arrays.equals(split.getTestingRows(), new Splitter(6, false).holdout(data, 0.5).getTestingRows()));
+        final Splitter.Split[] folds = new Splitter(5, true).folds(data, 4);
+        final Splitter.Split[] sameFolds = new Splitter(5, true).folds(data, 4);
+        for (int fold = 0; fold < folds.length; fold++) {
+            assertArrayEquals(folds[fold].getTestingRows(), sameFolds[fold].getTestingRows());
+        }
+    }
+
+    @Test
+    public void stratifiedHoldoutKeepsTheLabelProportions() {
+        final Splitter.Split split = new Splitter(2, true).holdout(data, 0.7);
+        final int[] labels = countLabels(data.getAllRows());
+        final int[] tested = countLabels(split.getTestingRows());
+        for (int label = 0; label < labels.length; label++) {
+            final double expected = labels[label] * split.getTestingRows().length / (double) data.getNumberOfRows();
+            assertEquals(expected, tested[label], 1.0);
+        }
+    }
+
+    @Test
+    public void everyRowIsTestedInOneFold() {
+        for (final boolean stratified : new boolean[]{false, true}) {
+            final Splitter.Split[] folds = new Splitter(3, stratified).folds(data, 10);
+            final int[] tested = new int[data.getNumberOfRows()];
+            for (final Splitter.Split fold : folds) {
+                assertPartition(fold);
+                final int size = fold.getTestingRows().length;
+                assertTrue(size == data.getNumberOfRows() / 10 || size == data.getNumberOfRows() / 10 + 1);
+                for (final int row : fold.getTestingRows()) {
+                    tested[row]++;
+                }
+            }
+            for (final int count : tested) {
+                assertEquals(1, count);
+            }
+        }
+    }
+
+    @Test
+    public void stratifiedFoldsShareEveryLabelEvenly() {
+        final Splitter.Split[] folds = new Splitter(4, true).folds(data, 7);
+        final int[] labels = countLabels(data.getAllRows());
+        for (final Splitter.Split fold : folds) {
+            final int[] tested = countLabels(fold.getTestingRows());
+            for (int label = 0; label < labels.length; label++) {
+                assertEquals(labels[label] / 7.0, tested[label], 1.0);
+            }
+        }
+    }
+
+    /**
+     * Asserts that the training and testing rows are increasing, disjoint and together cover all rows
+     */
+    private static void assertPartition(final Splitter.Split split) {
+        final boolean[] drawn = new boolean[data.getNumberOfRows()];
+        for (final int[] subset : new int[][]{split.getTrainingRows(), split.getTestingRows()}) {
+            for (int i = 0; i < subset.length; i++) {
+                assertTrue(i == 0 || subset[i - 1] < subset[i]);
+                assertFalse(drawn[subset[i]]);
+                drawn[subset[i]] = true;
+            }
+        }
+        assertEquals(data.getNumberOfRows(), split.getTrainingRows().length + split.getTestingRows().length);
+    }
+
+    private static int[] countLabels(final int[] rows) {
+        final int[] counts = new int[data.getLabelDictionary().length];
+        for (final int row : rows) {
+            counts[data.getLabels()[row]]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,99 @@
+package driver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Data sets shared by the tests: the bundled owls15.csv and a generated file mixing the value forms
+ * the readers have to agree on.
+ */
+public final class TestDataSets {
+
+    public static final String OWLS = Paths.get("owls15.csv").toAbsolutePath().toString();
+
+    private static final String[] COLORS = {"red", "\"red, dark\"", "blue", "green", ""};
+
+    private TestDataSets() {
+    }
+
+    /**
+     * Writes a csv file with a continuous column holding blanks, whitespace and exponents, two numeric looking
+     * columns that turn discrete on a late value, one with leading zeros and one with trailing zeros,
+     * a discrete column with quoted values and a label depending on the columns with some noise
+     *
+     * @param file
+     * @param rows
+     * @param seed
+     * @return - path of the file
+     * @throws IOException
+     */
+    public static String writeMixedCsv(final Path file, final int rows, final long seed) throws IOException {
+        final Random random = new Random(seed);
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("length,zip,price,color,label\n");
+            for (int row = 0; row < rows; row++) {
+                final int length = random.nextInt(1000);
+                final String lengthText;
+                switch (random.nextInt(8)) {
+                    case 0:
+                        lengthText = "";
+                        break;
+                    case 1:
+                        lengthText = " " + length / 10.0;
+                        break;
+                    case 2:
+                        lengthText = length + "e-1";
+                        break;
+                    default:
+                        lengthText = Double.toString(length / 10.0);
+                }
+                final int zip = random.nextInt(40);
+                final String zipText = row == rows - 1 ? "unknown" : String.format("%05d", zip);
+                final int cents = random.nextInt(20) * 25;
+                final String priceText = row == rows / 2 ? "free" : String.format("%d.%02d", cents / 100, cents % 100);
+                final int color = random.nextInt(COLORS.length);
+                final String label;
+                if (random.nextInt(10) == 0) {
+                    label = random.nextBoolean() ? "yes" : "maybe";
+                } else if (length > 600) {
+                    label = color < 2 ? "yes" : "no";
+                } else {
+                    label = zip < 20 ? "no" : cents > 250 ? "maybe" : "yes";
+                }
+                writer.write(lengthText + "," + zipText + "," + priceText + "," + COLORS[color] + "," + label + "\n");
+            }
+        }
+        return file.toString();
+    }
+
+    /**
+     * Asserts that two data matrices hold the same attributes, dictionaries and values
+     *
+     * @param expected
+     * @param actual
+     */
+    public static void assertSameData(final DataMatrix expected, final DataMatrix actual) {
+        assertEquals(expected.getNumberOfColumns(), actual.getNumberOfColumns());
+        assertEquals(expected.getNumberOfRows(), actual.getNumberOfRows());
+        assertEquals(expected.getTargetColumn(), actual.getTargetColumn());
+        for (int column = 0; column < expected.getNumberOfColumns(); column++) {
+            final String name = expected.getAttribute(column).getName();
+            assertEquals(name, actual.getAttribute(column).getName());
+            assertEquals(name, expected.isContinuous(column), actual.isContinuous(column));
+            if (expected.isContinuous(column)) {
+                assertArrayEquals(name, expected.getContinuousColumn(column), actual.getContinuousColumn(column), 0.0);
+            } else {
+                assertArrayEquals(name, expected.getDictionary(column), actual.getDictionary(column));
+                assertArrayEquals(name, expected.getDiscreteColumn(column), actual.getDiscreteColumn(column));
+            }
+        }
+    }
+}